@@ -0,0 +1,38 @@
+#!/bin/bash
+# Compares throughput and latency of the MVC application (platform and virtual threads) and of the reactive one,
+# under the same closed-model load, with backend/bench/ThreadModeBenchmark.java as the client.
+# Both use the database of their application.properties, load some notes first (POST /notes/bulk).
+# Tune with CLIENTS, DURATION (seconds) and PATHS, the applications run one at a time.
+set -e
+cd "$(dirname "$0")/../.."
+
+CLIENTS=${CLIENTS:-1000}
+DURATION=${DURATION:-30}
+PATHS=${PATHS:-/notes/paginate?size=50,/tags/,/notes/paginate?size=10}
+MVN=${MVN:-./mvnw}
+CLIENT=backend/bench/ThreadModeBenchmark.java
+
+(cd backend && $MVN -q -B -DskipTests package)
+(cd backend-reactive && $MVN -q -B -DskipTests package)
+MVC_JAR=$(ls backend/target/notes-*.jar | head -1)
+REACTIVE_JAR=$(ls backend-reactive/target/notes-reactive-*.jar | head -1)
+
+run() {
+    local name=$1 port=$2
+    shift 2
+    java -jar "$@" > "backend-reactive/target/bench-$name.log" 2>&1 &
+    local pid=$!
+    until curl -sf "http://localhost:$port/actuator/health" > /dev/null; do sleep 1; done
+
+    # Warm up the JIT and the connection pool.
+    java "$CLIENT" "http://localhost:$port" "$CLIENTS" 10 "$PATHS" > /dev/null
+    echo "$name: $(java "$CLIENT" "http://localhost:$port" "$CLIENTS" "$DURATION" "$PATHS")"
+
+    kill $pid
+    wait $pid || true
+}
+
+# The MVC caches are turned off, both stacks then do the same database work per request.
+run mvc 8080 "$MVC_JAR" --spring.profiles.active=prod --spring.cache.type=none
+run mvc-virtual-threads 8080 "$MVC_JAR" --spring.profiles.active=prod --spring.cache.type=none --spring.threads.virtual.enabled=true
+run reactive 8081 "$REACTIVE_JAR"
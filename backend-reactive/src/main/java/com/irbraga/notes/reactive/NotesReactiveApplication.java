@@ -0,0 +1,12 @@
+package com.irbraga.notes.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class NotesReactiveApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(NotesReactiveApplication.class, args);
+	}
+}
@@ -0,0 +1,228 @@
+package com.irbraga.notes.reactive.controllers;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.irbraga.notes.reactive.dto.KeysetPage;
+import com.irbraga.notes.reactive.dto.NoteCursor;
+import com.irbraga.notes.reactive.dto.NoteDto;
+import com.irbraga.notes.reactive.dto.NoteReturnObject;
+import com.irbraga.notes.reactive.dto.NoteSummaryReturnObject;
+import com.irbraga.notes.reactive.entities.NoteSummaryRow;
+import com.irbraga.notes.reactive.mappers.NotesMapper;
+import com.irbraga.notes.reactive.repositories.NotesRepository;
+import com.irbraga.notes.reactive.repositories.TagsRepository;
+import com.irbraga.notes.reactive.services.NotesService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Tag(name = "Notes", description = "Endpoints related to Notes.")
+@RestController("Notes Controller")
+@RequestMapping(path = "/notes", produces = MediaType.APPLICATION_JSON_VALUE)
+public class NotesController {
+
+    // Max number of notes returned by a single page, the tags of a whole page are loaded in one query.
+    private static final int MAX_PAGE_SIZE = NotesService.CHUNK_SIZE;
+
+    // Injected repository.
+    @Autowired
+    private NotesRepository notesRepository;
+    @Autowired
+    private TagsRepository tagsRepository;
+    @Autowired
+    private NotesService notesService;
+    @Autowired
+    private NotesMapper notesMapper;
+
+    /**
+     * Creates a Note.
+     * @param dto
+     * @return
+     */
+    @Operation(description = "Creates a note.", summary = "Creates a note.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Created.", content = {@Content(schema = @Schema(implementation = NoteReturnObject.class))}),
+        @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content)
+    })
+    @PostMapping(path = "/", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<NoteReturnObject> create(@Valid @RequestBody NoteDto dto) {
+        return notesRepository.insert(UUID.randomUUID(), dto.title(), dto.body(), dto.color())
+                              .map(note -> notesMapper.toResponse(note, List.of()));
+    }
+
+    /**
+     * Updates a note.
+     * @param uuid
+     * @param dto
+     * @return
+     */
+    @Operation(description = "Updates a note.", summary = "Updates a note.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = {@Content(schema = @Schema(implementation = NoteReturnObject.class))}),
+        @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not found.", content = @Content)
+    })
+    @PutMapping(path = "/{uuid}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<NoteReturnObject>> update(@PathVariable UUID uuid, @Valid @RequestBody NoteDto dto) {
+        return notesService.withTags(notesRepository.update(uuid, dto.title(), dto.body(), dto.color()))
+                           .map(note -> ResponseEntity.status(HttpStatus.OK).body(note))
+                           .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).body(null));
+    }
+
+    /**
+     * Retreives a note by it's ID.
+     * @param uuid
+     * @return
+     */
+    @Operation(description = "Retreives a note by it's ID.", summary = "Retreives a note by it's ID.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = {@Content(schema = @Schema(implementation = NoteReturnObject.class))}),
+        @ApiResponse(responseCode = "404", description = "Not found.", content = @Content)
+    })
+    @GetMapping(path = "/{uuid}")
+    public Mono<ResponseEntity<NoteReturnObject>> get(@PathVariable UUID uuid) {
+        return notesService.withTags(notesRepository.findById(uuid))
+                           .map(note -> ResponseEntity.status(HttpStatus.OK).body(note))
+                           .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).body(null));
+    }
+
+    /**
+     * Retreives all notes, written as they are read.
+     * @return
+     */
+    @Operation(description = "Retreives all notes ordered by creation date, with an excerpt of their body, as a JSON array or as newline delimited JSON. "
+                           + "Notes are read as the client consumes them.",
+               summary = "Retreives all notes.")
+    @ApiResponse(responseCode = "200", description = "Success.", content = @Content(array = @ArraySchema(schema = @Schema(implementation = NoteSummaryReturnObject.class))))
+    @GetMapping(path = "/", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<NoteSummaryReturnObject> list() {
+        return notesService.summariesWithTags(notesRepository.findAllSummaries());
+    }
+
+    /**
+     * Streams all notes as newline delimited JSON.
+     * @return
+     */
+    @Operation(description = "Streams all notes as newline delimited JSON, one note per line.", summary = "Streams all notes.")
+    @ApiResponse(responseCode = "200", description = "Success.", content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = NoteReturnObject.class)))
+    @GetMapping(path = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<NoteReturnObject> stream() {
+        return notesService.withTags(notesRepository.findAllOrdered());
+    }
+
+    /**
+     * Retreives a page of notes, ordered by creation date.
+     * @param cursor
+     * @param size
+     * @return
+     */
+    @Operation(description = "Retreives a page of notes ordered by creation date, with an excerpt of their body. Use the returned nextCursor to get the next page.", summary = "Retreives a page of notes.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content),
+        @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content)
+    })
+    @GetMapping(path = "/paginate")
+    public Mono<ResponseEntity<KeysetPage<NoteSummaryReturnObject>>> paginate(@RequestParam(required = false) String cursor,
+                                                                              @RequestParam(defaultValue = "50") int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null));
+        }
+        Flux<NoteSummaryRow> notes;
+        if (cursor == null || cursor.isBlank()) {
+            notes = notesRepository.findFirstPage(size);
+        } else {
+            try {
+                NoteCursor after = NoteCursor.decode(cursor);
+                notes = notesRepository.findPageAfter(after.createdAtLocal(), after.id(), size);
+            } catch (IllegalArgumentException e) {
+                return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null));
+            }
+        }
+        return notes.collectList().flatMap(page -> {
+            String nextCursor = null;
+            if (page.size() == size) {
+                NoteSummaryRow last = page.get(page.size() - 1);
+                nextCursor = NoteCursor.of(last.createdAt(), last.noteId()).encode();
+            }
+            String next = nextCursor;
+            return notesService.summariesWithTags(Flux.fromIterable(page))
+                               .collectList()
+                               .map(items -> ResponseEntity.status(HttpStatus.OK).body(new KeysetPage<>(items, next)));
+        });
+    }
+
+    /**
+     * Retreives all notes with a specific tag ID.
+     * @param uuid
+     * @return
+     */
+    @Operation(description = "Retreives all notes with a specific tag ID, with an excerpt of their body.", summary = "Retreives all notes with a specific tag ID.")
+    @ApiResponse(responseCode = "200", description = "Success.", content = @Content(array = @ArraySchema(schema = @Schema(implementation = NoteSummaryReturnObject.class))))
+    @GetMapping(path = "/tag/{uuid}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<NoteSummaryReturnObject> listByTagId(@PathVariable UUID uuid) {
+        return notesService.summariesWithTags(notesRepository.findByTagId(uuid));
+    }
+
+    /**
+     * Deletes a note by it's ID.
+     * @param uuid
+     * @return
+     */
+    @Operation(description = "Deletes a note by it's ID.", summary = "Deletes a note by it's ID.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not found.", content = @Content)
+    })
+    @DeleteMapping(path = "/{uuid}")
+    public Mono<ResponseEntity<Object>> delete(@PathVariable UUID uuid) {
+        return notesRepository.deleteWithLinks(uuid)
+                              .map(deleted -> ResponseEntity.status(deleted > 0 ? HttpStatus.OK : HttpStatus.NOT_FOUND).body(null));
+    }
+
+    @Operation(description = "Add a tag to a note.", summary = "Add a tag to a note.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = {@Content(schema = @Schema(implementation = NoteReturnObject.class))}),
+        @ApiResponse(responseCode = "404", description = "Not found.", content = @Content)
+    })
+    @PutMapping(path = "/{uuid}/tag/{tagUuid}")
+    public Mono<ResponseEntity<NoteReturnObject>> addTag(@PathVariable UUID uuid, @PathVariable UUID tagUuid) {
+        return tagsRepository.existsById(tagUuid)
+                             .flatMap(exists -> exists ? notesRepository.addTag(uuid, tagUuid).then(get(uuid))
+                                                       : Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(null)));
+    }
+
+    @Operation(description = "Remove a tag from a note.", summary = "Remove a tag from a note.")
+    @DeleteMapping(path = "/{uuid}/tag/{tagUuid}")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = {@Content(schema = @Schema(implementation = NoteReturnObject.class))}),
+        @ApiResponse(responseCode = "404", description = "Not found.", content = @Content)
+    })
+    public Mono<ResponseEntity<NoteReturnObject>> removeTag(@PathVariable UUID uuid, @PathVariable UUID tagUuid) {
+        return tagsRepository.existsById(tagUuid)
+                             .flatMap(exists -> exists ? notesRepository.removeTag(uuid, tagUuid).then(get(uuid))
+                                                       : Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).body(null)));
+    }
+}
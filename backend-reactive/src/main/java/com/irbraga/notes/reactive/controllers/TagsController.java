@@ -0,0 +1,123 @@
+package com.irbraga.notes.reactive.controllers;
+
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.irbraga.notes.reactive.dto.TagDto;
+import com.irbraga.notes.reactive.dto.TagReturnObject;
+import com.irbraga.notes.reactive.mappers.TagsMapper;
+import com.irbraga.notes.reactive.repositories.TagsRepository;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Tag(name = "Tags", description = "Endpoints related to Tags.")
+@RestController("Tags Controller")
+@RequestMapping(path = "/tags", produces = MediaType.APPLICATION_JSON_VALUE)
+public class TagsController {
+
+    // Injected repository.
+    @Autowired
+    private TagsRepository tagsRepository;
+    @Autowired
+    private TagsMapper tagsMapper;
+
+    /**
+     * Creates a Tag.
+     * @param dto
+     * @return
+     */
+    @Operation(description = "Creates a tag.", summary = "Creates a tag.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Created.", content = {@Content(schema = @Schema(implementation = TagReturnObject.class))}),
+        @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content)
+    })
+    @PostMapping(path = "/", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<TagReturnObject>> create(@Valid @RequestBody TagDto dto) {
+        return tagsRepository.insert(UUID.randomUUID(), dto.name())
+                             .map(tag -> ResponseEntity.status(HttpStatus.CREATED).body(tagsMapper.toResponse(tag)));
+    }
+
+    /**
+     * Updates a Tag.
+     * @param uuid
+     * @param dto
+     * @return
+     */
+    @Operation(description = "Updates a tag.", summary = "Updates a tag.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = {@Content(schema = @Schema(implementation = TagReturnObject.class))}),
+        @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not found.", content = @Content)
+    })
+    @PutMapping(path = "/{uuid}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<TagReturnObject>> update(@PathVariable UUID uuid, @Valid @RequestBody TagDto dto) {
+        return tagsRepository.update(uuid, dto.name())
+                             .map(tag -> ResponseEntity.status(HttpStatus.OK).body(tagsMapper.toResponse(tag)))
+                             .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).body(null));
+    }
+
+    /**
+     * Lists all tags.
+     * @return
+     */
+    @Operation(description = "Retreives all tags.", summary = "Retreives all tags.")
+    @ApiResponse(responseCode = "200", description = "Success.", content = @Content(array = @ArraySchema(schema = @Schema(implementation = TagReturnObject.class))))
+    @GetMapping(path = "/")
+    public Flux<TagReturnObject> list() {
+        return tagsRepository.findAll().map(tagsMapper::toResponse);
+    }
+
+    /**
+     * Gets a tag by it's ID.
+     * @param uuid
+     * @return
+     */
+    @Operation(description = "Retreives a tag by it's ID.", summary = "Retreives a tag by it's ID.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content(schema = @Schema(implementation = TagReturnObject.class))),
+        @ApiResponse(responseCode = "404", description = "Not found.", content = @Content)
+    })
+    @GetMapping(path = "/{uuid}")
+    public Mono<ResponseEntity<TagReturnObject>> get(@PathVariable UUID uuid) {
+        return tagsRepository.findById(uuid)
+                             .map(tag -> ResponseEntity.status(HttpStatus.OK).body(tagsMapper.toResponse(tag)))
+                             .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND).body(null));
+    }
+
+    /**
+     * Deletes a tag if exists, notes keep existing without it.
+     * @param uuid
+     * @return
+     */
+    @Operation(description = "Deletes a tag by it's ID.", summary = "Deletes a tag by it's ID.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not found.", content = @Content)
+    })
+    @DeleteMapping(path = "/{uuid}")
+    public Mono<ResponseEntity<Object>> delete(@PathVariable UUID uuid) {
+        return tagsRepository.deleteWithLinks(uuid)
+                             .map(deleted -> ResponseEntity.status(deleted > 0 ? HttpStatus.OK : HttpStatus.NOT_FOUND).body(null));
+    }
+}
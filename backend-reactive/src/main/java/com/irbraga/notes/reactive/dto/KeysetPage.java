@@ -0,0 +1,11 @@
+package com.irbraga.notes.reactive.dto;
+
+import java.util.List;
+
+/**
+ * A page of a keyset pagination.
+ * nextCursor is null when there are no more items.
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+    
+}
@@ -0,0 +1,57 @@
+package com.irbraga.notes.reactive.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of a note in the keyset pagination (created_at, note_id).
+ * Clients receive it as an opaque token, the same token as the MVC application's.
+ */
+public record NoteCursor(Instant createdAt, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Builds the cursor pointing at the given note.
+     * created_at has no time zone, it is read in the default one like JDBC does.
+     * @param createdAt
+     * @param id
+     * @return
+     */
+    public static NoteCursor of(LocalDateTime createdAt, UUID id) {
+        return new NoteCursor(createdAt.atZone(ZoneId.systemDefault()).toInstant(), id);
+    }
+
+    /**
+     * Encodes the cursor as an URL safe token.
+     * @return
+     */
+    public String encode() {
+        String raw = this.createdAt.toString() + SEPARATOR + this.id.toString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token created by {@link #encode()}.
+     * @param token
+     * @return
+     * @throws IllegalArgumentException if the token is not valid.
+     */
+    public static NoteCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new NoteCursor(Instant.parse(raw.substring(0, separator)), UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+
+    public LocalDateTime createdAtLocal() {
+        return LocalDateTime.ofInstant(this.createdAt, ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,19 @@
+package com.irbraga.notes.reactive.dto;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Note and its tags as returned by the list endpoints, with an excerpt instead of the body.
+ */
+public record NoteSummaryReturnObject(UUID id,
+                                      String title,
+                                      String excerpt,
+                                      String color,
+                                      Date createdAt,
+                                      Date updatedAt,
+                                      Long version,
+                                      List<TagReturnObject> tags) {
+
+}
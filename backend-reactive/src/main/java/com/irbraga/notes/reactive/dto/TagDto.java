@@ -0,0 +1,8 @@
+package com.irbraga.notes.reactive.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+public record TagDto(@NotNull @Size(min = 1, max = 50) String name) {
+    
+}
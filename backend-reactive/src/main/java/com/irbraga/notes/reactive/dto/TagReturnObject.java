@@ -0,0 +1,11 @@
+package com.irbraga.notes.reactive.dto;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Tag as returned by the endpoints.
+ */
+public record TagReturnObject(UUID id, String name, Date createdAt, Date updatedAt) {
+    
+}
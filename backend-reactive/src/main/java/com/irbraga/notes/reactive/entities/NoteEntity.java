@@ -0,0 +1,42 @@
+package com.irbraga.notes.reactive.entities;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import lombok.Data;
+
+/**
+ * A row of the notes table. R2DBC has no relationships, the tags are loaded
+ * separately through {@link NoteTagRow}.
+ */
+@Data
+@Table("notes")
+public class NoteEntity {
+
+    @Id
+    @Column("note_id")
+    private UUID id;
+
+    @Column("title")
+    private String title;
+
+    @Column("body")
+    private String body;
+
+    @Column("color")
+    private String color;
+
+    @Column("created_at")
+    private LocalDateTime createdAt;
+
+    @Column("updated_at")
+    private LocalDateTime updatedAt;
+
+    // Incremented by every update, see the version of the MVC application's NoteEntity.
+    @Column("version")
+    private Long version;
+}
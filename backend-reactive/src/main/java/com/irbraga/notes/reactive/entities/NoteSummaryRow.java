@@ -0,0 +1,11 @@
+package com.irbraga.notes.reactive.entities;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A note without its body, as read by the list endpoints. The excerpt is generated by the database from the body.
+ */
+public record NoteSummaryRow(UUID noteId, String title, String excerpt, String color, LocalDateTime createdAt, LocalDateTime updatedAt, Long version) {
+
+}
@@ -0,0 +1,11 @@
+package com.irbraga.notes.reactive.entities;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A tag of a note, the tags of many notes are loaded at once as rows of notes_tags joined with tags.
+ */
+public record NoteTagRow(UUID noteId, UUID tagId, String name, LocalDateTime createdAt, LocalDateTime updatedAt) {
+    
+}
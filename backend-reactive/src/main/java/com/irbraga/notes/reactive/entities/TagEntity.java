@@ -0,0 +1,31 @@
+package com.irbraga.notes.reactive.entities;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import lombok.Data;
+
+/**
+ * A row of the tags table.
+ */
+@Data
+@Table("tags")
+public class TagEntity {
+
+    @Id
+    @Column("tag_id")
+    private UUID id;
+
+    @Column("name")
+    private String name;
+
+    @Column("created_at")
+    private LocalDateTime createdAt;
+
+    @Column("updated_at")
+    private LocalDateTime updatedAt;
+}
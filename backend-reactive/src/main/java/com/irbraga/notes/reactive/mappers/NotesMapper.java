@@ -0,0 +1,29 @@
+package com.irbraga.notes.reactive.mappers;
+
+import java.util.List;
+
+import org.mapstruct.InjectionStrategy;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+
+import com.irbraga.notes.reactive.dto.NoteReturnObject;
+import com.irbraga.notes.reactive.dto.NoteSummaryReturnObject;
+import com.irbraga.notes.reactive.dto.TagReturnObject;
+import com.irbraga.notes.reactive.entities.NoteEntity;
+import com.irbraga.notes.reactive.entities.NoteSummaryRow;
+
+/**
+ * Maps note rows and their tags to the responses, the same JSON as the MVC application's.
+ */
+@Mapper(componentModel = "spring", uses = TagsMapper.class, injectionStrategy = InjectionStrategy.CONSTRUCTOR,
+        unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface NotesMapper {
+
+    @Mapping(target = "tags", source = "tags")
+    public NoteReturnObject toResponse(NoteEntity note, List<TagReturnObject> tags);
+
+    @Mapping(target = "id", source = "note.noteId")
+    @Mapping(target = "tags", source = "tags")
+    public NoteSummaryReturnObject toSummary(NoteSummaryRow note, List<TagReturnObject> tags);
+}
@@ -0,0 +1,34 @@
+package com.irbraga.notes.reactive.mappers;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+
+import com.irbraga.notes.reactive.dto.TagReturnObject;
+import com.irbraga.notes.reactive.entities.NoteTagRow;
+import com.irbraga.notes.reactive.entities.TagEntity;
+
+/**
+ * Maps tag rows to the responses, the same JSON as the MVC application's.
+ */
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface TagsMapper {
+
+    public TagReturnObject toResponse(TagEntity tag);
+
+    @Mapping(target = "id", source = "tagId")
+    public TagReturnObject toResponse(NoteTagRow row);
+
+    /**
+     * The timestamps have no time zone, they are read in the default one like JDBC does.
+     * @param value
+     * @return
+     */
+    public default Date toDate(LocalDateTime value) {
+        return value == null ? null : Date.from(value.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,107 @@
+package com.irbraga.notes.reactive.repositories;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.irbraga.notes.reactive.entities.NoteEntity;
+import com.irbraga.notes.reactive.entities.NoteSummaryRow;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of the MVC NotesRepository. Writes return the row written, in the same round trip.
+ */
+@Repository
+public interface NotesRepository extends ReactiveCrudRepository<NoteEntity, UUID> {
+
+    /**
+     * Columns of NoteSummaryRow, the list queries never read the body.
+     */
+    static final String SUMMARY_COLUMNS = "n.note_id, n.title, n.excerpt, n.color, n.created_at, n.updated_at, n.version";
+
+    /**
+     * All notes in creation order, emitted as they are read.
+     * @return
+     */
+    @Query("SELECT * FROM notes n ORDER BY n.created_at, n.note_id")
+    public Flux<NoteEntity> findAllOrdered();
+
+    /**
+     * Summaries of all notes in creation order, emitted as they are read.
+     * @return
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes n ORDER BY n.created_at, n.note_id")
+    public Flux<NoteSummaryRow> findAllSummaries();
+
+    /**
+     * First page of the keyset pagination.
+     * @param limit
+     * @return
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes n ORDER BY n.created_at, n.note_id LIMIT :limit")
+    public Flux<NoteSummaryRow> findFirstPage(int limit);
+
+    /**
+     * Next page of the keyset pagination, seeking right after the last (created_at, note_id) returned.
+     * @param createdAt
+     * @param id
+     * @param limit
+     * @return
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes n WHERE (n.created_at, n.note_id) > (:createdAt, :id) ORDER BY n.created_at, n.note_id LIMIT :limit")
+    public Flux<NoteSummaryRow> findPageAfter(LocalDateTime createdAt, UUID id, int limit);
+
+    /**
+     * Notes with a tag, in creation order.
+     * @param tagId
+     * @return
+     */
+    @Query("SELECT " + SUMMARY_COLUMNS + " FROM notes n JOIN notes_tags nt ON nt.note_id = n.note_id WHERE nt.tag_id = :tagId ORDER BY n.created_at, n.note_id")
+    public Flux<NoteSummaryRow> findByTagId(UUID tagId);
+
+    @Query("INSERT INTO notes (note_id, title, body, color) VALUES (:id, :title, :body, coalesce(:color, '#FFFFFF')) RETURNING *")
+    public Mono<NoteEntity> insert(UUID id, String title, String body, String color);
+
+    @Query("UPDATE notes SET title = :title, body = :body, color = coalesce(:color, color), updated_at = now(), version = version + 1 WHERE note_id = :id RETURNING *")
+    public Mono<NoteEntity> update(UUID id, String title, String body, String color);
+
+    /**
+     * Deletes a note and its tag links.
+     * @param id
+     * @return the number of notes deleted.
+     */
+    @Modifying
+    @Query("WITH links AS (DELETE FROM notes_tags WHERE note_id = :id) DELETE FROM notes WHERE note_id = :id")
+    public Mono<Integer> deleteWithLinks(UUID id);
+
+    /**
+     * Adds a tag to a note when both exist, and bumps the note's updated_at when the link is new.
+     * @param id
+     * @param tagId
+     * @return the number of notes changed.
+     */
+    @Modifying
+    @Query("WITH added AS ("
+         + "  INSERT INTO notes_tags (note_id, tag_id) "
+         + "  SELECT n.note_id, t.tag_id FROM notes n, tags t WHERE n.note_id = :id AND t.tag_id = :tagId "
+         + "  ON CONFLICT DO NOTHING RETURNING note_id) "
+         + "UPDATE notes SET updated_at = now() WHERE note_id IN (SELECT note_id FROM added)")
+    public Mono<Integer> addTag(UUID id, UUID tagId);
+
+    /**
+     * Removes a tag from a note, and bumps the note's updated_at when it had it.
+     * @param id
+     * @param tagId
+     * @return the number of notes changed.
+     */
+    @Modifying
+    @Query("WITH removed AS (DELETE FROM notes_tags WHERE note_id = :id AND tag_id = :tagId RETURNING note_id) "
+         + "UPDATE notes SET updated_at = now() WHERE note_id IN (SELECT note_id FROM removed)")
+    public Mono<Integer> removeTag(UUID id, UUID tagId);
+}
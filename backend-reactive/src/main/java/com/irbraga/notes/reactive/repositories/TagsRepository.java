@@ -0,0 +1,45 @@
+package com.irbraga.notes.reactive.repositories;
+
+import java.util.UUID;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+
+import com.irbraga.notes.reactive.entities.NoteTagRow;
+import com.irbraga.notes.reactive.entities.TagEntity;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of the MVC TagsRepository. Writes return the row written, in the same round trip.
+ */
+@Repository
+public interface TagsRepository extends ReactiveCrudRepository<TagEntity, UUID> {
+
+    /**
+     * Tags of many notes in a single query.
+     * @param noteIds
+     * @return
+     */
+    @Query("SELECT nt.note_id, t.tag_id, t.name, t.created_at, t.updated_at "
+         + "FROM notes_tags nt JOIN tags t ON t.tag_id = nt.tag_id WHERE nt.note_id = ANY(:noteIds)")
+    public Flux<NoteTagRow> findByNoteIds(UUID[] noteIds);
+
+    @Query("INSERT INTO tags (tag_id, name) VALUES (:id, :name) RETURNING *")
+    public Mono<TagEntity> insert(UUID id, String name);
+
+    @Query("UPDATE tags SET name = :name, updated_at = now() WHERE tag_id = :id RETURNING *")
+    public Mono<TagEntity> update(UUID id, String name);
+
+    /**
+     * Deletes a tag and its links to notes.
+     * @param id
+     * @return the number of tags deleted.
+     */
+    @Modifying
+    @Query("WITH links AS (DELETE FROM notes_tags WHERE tag_id = :id) DELETE FROM tags WHERE tag_id = :id")
+    public Mono<Integer> deleteWithLinks(UUID id);
+}
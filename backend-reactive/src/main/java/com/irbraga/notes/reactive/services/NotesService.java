@@ -0,0 +1,95 @@
+package com.irbraga.notes.reactive.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.irbraga.notes.reactive.dto.NoteReturnObject;
+import com.irbraga.notes.reactive.dto.NoteSummaryReturnObject;
+import com.irbraga.notes.reactive.dto.TagReturnObject;
+import com.irbraga.notes.reactive.entities.NoteEntity;
+import com.irbraga.notes.reactive.entities.NoteSummaryRow;
+import com.irbraga.notes.reactive.entities.NoteTagRow;
+import com.irbraga.notes.reactive.mappers.NotesMapper;
+import com.irbraga.notes.reactive.mappers.TagsMapper;
+import com.irbraga.notes.reactive.repositories.TagsRepository;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Attaches their tags to notes read from the database.
+ *
+ * Notes are taken in chunks of CHUNK_SIZE and the tags of a whole chunk are loaded with one query,
+ * at most one chunk is read ahead of the one being written. A slow client therefore slows
+ * down the reads instead of making notes pile up in memory.
+ */
+@Service
+public class NotesService {
+
+    // Number of notes whose tags are loaded together, same as the batch size of the MVC application.
+    public static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private TagsRepository tagsRepository;
+    @Autowired
+    private NotesMapper notesMapper;
+    @Autowired
+    private TagsMapper tagsMapper;
+
+    /**
+     * Notes with their tags, in the order of the given notes.
+     * @param notes
+     * @return
+     */
+    public Flux<NoteReturnObject> withTags(Flux<NoteEntity> notes) {
+        return withTags(notes, NoteEntity::getId, notesMapper::toResponse);
+    }
+
+    /**
+     * A note with its tags.
+     * @param note
+     * @return
+     */
+    public Mono<NoteReturnObject> withTags(Mono<NoteEntity> note) {
+        return withTags(note.flux()).next();
+    }
+
+    /**
+     * Note summaries with their tags, in the order of the given summaries.
+     * @param notes
+     * @return
+     */
+    public Flux<NoteSummaryReturnObject> summariesWithTags(Flux<NoteSummaryRow> notes) {
+        return withTags(notes, NoteSummaryRow::noteId, notesMapper::toSummary);
+    }
+
+    private <N, R> Flux<R> withTags(Flux<N> notes, Function<N, UUID> id, BiFunction<N, List<TagReturnObject>, R> toResponse) {
+        return notes.buffer(CHUNK_SIZE)
+                    .concatMap(chunk -> withTags(chunk, id, toResponse), 1);
+    }
+
+    private <N, R> Flux<R> withTags(List<N> chunk, Function<N, UUID> id, BiFunction<N, List<TagReturnObject>, R> toResponse) {
+        UUID[] ids = chunk.stream().map(id).toArray(UUID[]::new);
+        return tagsRepository.findByNoteIds(ids)
+                             .collectMultimap(NoteTagRow::noteId, tagsMapper::toResponse)
+                             .flatMapIterable(tags -> toResponses(chunk, id, toResponse, tags));
+    }
+
+    private <N, R> List<R> toResponses(List<N> chunk, Function<N, UUID> id, BiFunction<N, List<TagReturnObject>, R> toResponse,
+                                       Map<UUID, Collection<TagReturnObject>> tags) {
+        List<R> responses = new ArrayList<>(chunk.size());
+        for (N note : chunk) {
+            Collection<TagReturnObject> noteTags = tags.get(id.apply(note));
+            responses.add(toResponse.apply(note, noteTags == null ? List.of() : new ArrayList<>(noteTags)));
+        }
+        return responses;
+    }
+}
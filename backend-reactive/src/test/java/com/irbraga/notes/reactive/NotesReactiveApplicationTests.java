@@ -0,0 +1,63 @@
+package com.irbraga.notes.reactive;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.irbraga.notes.reactive.dto.NoteDto;
+import com.irbraga.notes.reactive.dto.NoteReturnObject;
+import com.irbraga.notes.reactive.dto.NoteSummaryReturnObject;
+import com.irbraga.notes.reactive.dto.TagDto;
+import com.irbraga.notes.reactive.dto.TagReturnObject;
+
+import reactor.test.StepVerifier;
+
+@SpringBootTest
+@AutoConfigureWebTestClient
+class NotesReactiveApplicationTests {
+
+	@Autowired
+	private WebTestClient client;
+
+	@Test
+	void contextLoads() {
+	}
+
+	@Test
+	void tagsNotesAndStreamsThem() {
+		TagReturnObject tag = client.post().uri("/tags/").bodyValue(new TagDto("reactive-" + UUID.randomUUID().toString().substring(0, 8)))
+				.exchange().expectStatus().isCreated()
+				.expectBody(TagReturnObject.class).returnResult().getResponseBody();
+		NoteReturnObject note = client.post().uri("/notes/").bodyValue(new NoteDto("Reactive", "body", null))
+				.exchange().expectStatus().isOk()
+				.expectBody(NoteReturnObject.class).returnResult().getResponseBody();
+
+		client.put().uri("/notes/{id}/tag/{tag}", note.id(), tag.id())
+				.exchange().expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.color").isEqualTo("#FFFFFF")
+				.jsonPath("$.tags[0].name").isEqualTo(tag.name());
+
+		StepVerifier.create(client.get().uri("/notes/tag/{tag}", tag.id()).accept(MediaType.APPLICATION_NDJSON)
+						.exchange().expectStatus().isOk()
+						.returnResult(NoteSummaryReturnObject.class).getResponseBody())
+				.assertNext(streamed -> {
+					if (!streamed.id().equals(note.id()) || !"body".equals(streamed.excerpt()) || !streamed.tags().stream().map(TagReturnObject::id).toList().equals(List.of(tag.id()))) {
+						throw new AssertionError("Unexpected note " + streamed);
+					}
+				})
+				.verifyComplete();
+
+		client.delete().uri("/tags/{tag}", tag.id()).exchange().expectStatus().isOk();
+		client.get().uri("/notes/{id}", note.id()).exchange().expectStatus().isOk()
+				.expectBody().jsonPath("$.tags.length()").isEqualTo(0);
+		client.delete().uri("/notes/{id}", note.id()).exchange().expectStatus().isOk();
+		client.get().uri("/notes/{id}", note.id()).exchange().expectStatus().isNotFound();
+	}
+}
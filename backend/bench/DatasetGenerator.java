@@ -0,0 +1,229 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Fills the database with synthetic notes shaped like production data, through the bulk import
+ * (POST /notes/bulk), so they are inserted and their tags created and linked by the application.
+ *
+ * Body sizes follow a log-normal distribution (median around 400 characters, a long tail of big
+ * notes, some notes without a body) and tags are picked from a Zipf distribution: a few tags are
+ * on a large part of the notes, most are on a handful. The same seed generates the same dataset.
+ *
+ * Usage: java DatasetGenerator.java <base url> <notes> [tags] [seed] [streams]
+ */
+public class DatasetGenerator {
+
+    // Max title length of NoteDto.
+    private static final int MAX_TITLE_LENGTH = 50;
+    // Cap of the body size tail.
+    private static final int MAX_BODY_LENGTH = 50_000;
+    // Notes per import request. The client only reads the results once the whole request is sent, they
+    // must fit in the socket buffers or the server times out writing them (about 90 bytes per note).
+    private static final int NOTES_PER_REQUEST = 2_000;
+    private static final double BODY_MEDIAN = 400;
+    private static final double BODY_SIGMA = 1.2;
+    private static final double NO_BODY_RATIO = 0.05;
+    private static final double TAG_ZIPF_EXPONENT = 1.1;
+    // Number of tags of a note: 0 to 4, a few notes have none.
+    private static final double[] TAGS_PER_NOTE = {0.15, 0.35, 0.25, 0.15, 0.10};
+    private static final String[] COLORS = {"#FFFFFF", "#FFFFFF", "#FFFFFF", "#FFF475", "#CCFF90", "#A7FFEB", "#F28B82"};
+    private static final String[] WORDS = ("the of and to in is for on that with as this are be by from at or it an was have not which "
+            + "meeting project release review budget design client deadline draft invoice report sprint backlog roadmap "
+            + "travel recipe grocery idea book reading workout doctor school family weekend birthday garden movie music").split(" ");
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args[0];
+        long notes = Long.parseLong(args[1]);
+        int tags = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+        int streams = args.length > 4 ? Integer.parseInt(args[4]) : 4;
+
+        Zipf tagRanks = new Zipf(tags, TAG_ZIPF_EXPONENT);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(5)).build();
+        AtomicLong imported = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        long requests = (notes + NOTES_PER_REQUEST - 1) / NOTES_PER_REQUEST;
+        long start = System.nanoTime();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(streams)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long request = 0; request < requests; request++) {
+                long first = request * NOTES_PER_REQUEST;
+                long count = Math.min(NOTES_PER_REQUEST, notes - first);
+                // One generator per request, seeded by its position, so the dataset does not depend on the number of streams.
+                Random random = new Random(seed * 1_000_003 + request);
+                futures.add(executor.submit(() -> {
+                    long errors = importNotes(client, baseUrl, random, tagRanks, first, count);
+                    failed.addAndGet(errors);
+                    long done = imported.addAndGet(count - errors);
+                    if (done / 100_000 != (done - count + errors) / 100_000) {
+                        System.err.printf("%d/%d notes imported%n", done, notes);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("notes=%d failed=%d tags=%d seed=%d seconds=%.1f rate=%.0f notes/s%n",
+                          imported.get(), failed.get(), tags, seed, seconds, imported.get() / seconds);
+    }
+
+    /**
+     * Streams count generated notes to the bulk import.
+     * @return the number of notes not created.
+     */
+    private static long importNotes(HttpClient client, String baseUrl, Random random, Zipf tagRanks, long first, long count)
+            throws IOException, InterruptedException {
+        PipedInputStream body = new PipedInputStream(1 << 16);
+        PipedOutputStream output = new PipedOutputStream(body);
+        Thread writer = Thread.ofVirtual().start(() -> {
+            try (OutputStream out = output) {
+                StringBuilder line = new StringBuilder(4096);
+                for (long i = 0; i < count; i++) {
+                    line.setLength(0);
+                    appendNote(line, random, tagRanks, first + i);
+                    out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (IOException e) {
+                // The request failed, reported by send.
+            }
+        });
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/notes/bulk"))
+                                         .header("Content-Type", "application/x-ndjson")
+                                         .timeout(Duration.ofHours(1))
+                                         .POST(HttpRequest.BodyPublishers.ofInputStream(() -> body))
+                                         .build();
+        HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+        if (response.statusCode() != 200) {
+            throw new IOException("Import failed with status " + response.statusCode());
+        }
+        long errors;
+        try (Stream<String> results = response.body()) {
+            errors = results.filter(result -> !result.isBlank() && !result.contains("\"CREATED\"")).count();
+        }
+        writer.join();
+        return errors;
+    }
+
+    private static void appendNote(StringBuilder line, Random random, Zipf tagRanks, long index) {
+        line.append("{\"title\":");
+        appendString(line, title(random, index));
+        if (random.nextDouble() >= NO_BODY_RATIO) {
+            int length = (int) Math.min(MAX_BODY_LENGTH, Math.exp(Math.log(BODY_MEDIAN) + BODY_SIGMA * random.nextGaussian()));
+            line.append(",\"body\":");
+            appendString(line, text(random, Math.max(1, length)));
+        }
+        line.append(",\"color\":\"").append(COLORS[random.nextInt(COLORS.length)]).append('"');
+        line.append(",\"tags\":[");
+        Set<Integer> ranks = new LinkedHashSet<>();
+        int wanted = tagsPerNote(random);
+        // Distinct tags, retrying a bounded number of times since the top ranks come out often.
+        for (int attempt = 0; ranks.size() < wanted && attempt < wanted * 10; attempt++) {
+            ranks.add(tagRanks.sample(random));
+        }
+        boolean firstTag = true;
+        for (int rank : ranks) {
+            line.append(firstTag ? "" : ",").append("\"tag-").append(rank).append('"');
+            firstTag = false;
+        }
+        line.append("]}\n");
+    }
+
+    private static String title(Random random, long index) {
+        String title = text(random, 10 + random.nextInt(30)) + " " + index;
+        return title.length() > MAX_TITLE_LENGTH ? title.substring(title.length() - MAX_TITLE_LENGTH) : title;
+    }
+
+    private static String text(Random random, int length) {
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            if (!text.isEmpty()) {
+                text.append(random.nextInt(12) == 0 ? ".\n" : " ");
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.substring(0, length).strip();
+    }
+
+    private static int tagsPerNote(Random random) {
+        double value = random.nextDouble();
+        for (int i = 0; i < TAGS_PER_NOTE.length; i++) {
+            value -= TAGS_PER_NOTE[i];
+            if (value < 0) {
+                return i;
+            }
+        }
+        return TAGS_PER_NOTE.length - 1;
+    }
+
+    private static void appendString(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                default -> line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * Zipf distribution over the ranks 1..n, sampled by binary search of the cumulative probabilities.
+     */
+    private static class Zipf {
+
+        private final double[] cumulative;
+
+        Zipf(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 1; rank <= n; rank++) {
+                sum += 1 / Math.pow(rank, exponent);
+                cumulative[rank - 1] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int sample(Random random) {
+            double value = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low + 1;
+        }
+    }
+}
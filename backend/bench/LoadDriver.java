@@ -0,0 +1,453 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Open model load driver: sends a weighted mix of requests at a target rate, whatever the response
+ * times, so a slow server queues requests like it would in production (soak tests included).
+ *
+ * Latencies are measured from the time each request was scheduled, not sent, so a stalled server
+ * is not hidden by the driver waiting for it. While running, the server metrics (/actuator/prometheus)
+ * are sampled every second for the GC pauses, the heap and the connection pool.
+ *
+ * The results are written to a report (properties). Given the report of a previous run, the two are
+ * compared and the exit status is 1 when a metric regressed by more than the threshold (10% by default,
+ * -Dthreshold=0.2 for 20%).
+ *
+ * Usage: java LoadDriver.java <base url> <requests per second> <seconds> <mix file> <report> [baseline report]
+ */
+public class LoadDriver {
+
+    private static final Pattern NOTE_ID = Pattern.compile("\"id\":\"([0-9a-f-]{36})\",\"title\"");
+    private static final Pattern TAG = Pattern.compile("\"id\":\"([0-9a-f-]{36})\",\"name\":\"([^\"]*)\"");
+    private static final Pattern METRIC = Pattern.compile("^([a-zA-Z_:][a-zA-Z0-9_:]*)(\\{[^}]*\\})? (\\S+)");
+    private static final String[] WORDS = {"meeting", "project", "release", "budget", "recipe", "travel", "report", "garden", "doctor", "music"};
+    // Requests waiting for a response, past it new requests are counted as dropped instead of sent.
+    private static final int MAX_IN_FLIGHT = 10_000;
+    private static final Duration REPORT_INTERVAL = Duration.ofSeconds(10);
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args[0];
+        double rate = Double.parseDouble(args[1]);
+        long seconds = Long.parseLong(args[2]);
+        List<Request> mix = readMix(Path.of(args[3]));
+        Path report = Path.of(args[4]);
+        Path baseline = args.length > 5 ? Path.of(args[5]) : null;
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        Samples samples = Samples.load(client, baseUrl);
+        Map<String, Histogram> endpoints = new LinkedHashMap<>();
+        mix.forEach(request -> endpoints.put(request.label(), new Histogram()));
+        Histogram all = new Histogram();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong dropped = new AtomicLong();
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        ServerMetrics metrics = new ServerMetrics(client, baseUrl);
+        int totalWeight = mix.stream().mapToInt(Request::weight).sum();
+
+        long interval = (long) (1_000_000_000 / rate);
+        long start = System.nanoTime();
+        long end = start + Duration.ofSeconds(seconds).toNanos();
+        long nextReport = start + REPORT_INTERVAL.toNanos();
+        long reported = 0;
+        Histogram window = new Histogram();
+        metrics.start();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long scheduled = start; scheduled < end; scheduled += interval) {
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                }
+                if (System.nanoTime() >= nextReport) {
+                    long count = all.count();
+                    System.err.printf("%4ds %7.1f req/s p99=%.1f ms errors=%d dropped=%d%n", (System.nanoTime() - start) / 1_000_000_000,
+                                      (count - reported) / (double) REPORT_INTERVAL.toSeconds(), window.percentile(0.99),
+                                      errors.get(), dropped.get());
+                    reported = count;
+                    window = new Histogram();
+                    nextReport += REPORT_INTERVAL.toNanos();
+                }
+                if (!inFlight.tryAcquire()) {
+                    dropped.incrementAndGet();
+                    continue;
+                }
+                Request request = pick(mix, totalWeight);
+                HttpRequest httpRequest = request.build(baseUrl, samples);
+                long intended = scheduled;
+                Histogram current = window;
+                executor.submit(() -> {
+                    try {
+                        HttpResponse<Void> response = client.send(httpRequest, HttpResponse.BodyHandlers.discarding());
+                        // Conflicts are expected from the writes, a link may already be there or already removed.
+                        if (response.statusCode() >= 500) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        long micros = (System.nanoTime() - intended) / 1_000;
+                        endpoints.get(request.label()).record(micros);
+                        all.record(micros);
+                        current.record(micros);
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        metrics.stop();
+
+        // Written sorted by key, reports of two runs diff well.
+        Properties results = new Properties();
+        results.setProperty("config.rate", Double.toString(rate));
+        results.setProperty("config.seconds", Long.toString(seconds));
+        results.setProperty("config.mix", args[3]);
+        results.setProperty("requests", Long.toString(all.count()));
+        results.setProperty("errors", Long.toString(errors.get()));
+        results.setProperty("dropped", Long.toString(dropped.get()));
+        results.setProperty("throughput", format(all.count() / elapsed));
+        all.report(results, "latency");
+        endpoints.forEach((label, histogram) -> histogram.report(results, "endpoint." + label));
+        metrics.report(results);
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(report)) {
+            results.store(writer, "LoadDriver " + String.join(" ", args));
+        }
+        System.out.printf("requests=%s errors=%s dropped=%s throughput=%s req/s p50=%s ms p99=%s ms p99.9=%s ms max=%s ms "
+                        + "gc pauses=%s ms pool pending max=%s%n",
+                          results.get("requests"), results.get("errors"), results.get("dropped"), results.get("throughput"),
+                          results.get("latency.p50"), results.get("latency.p99"), results.get("latency.p999"), results.get("latency.max"),
+                          results.get("gc.pause.total"), results.get("pool.pending.max"));
+
+        if (baseline != null && !compare(load(baseline), results, Double.parseDouble(System.getProperty("threshold", "0.1")))) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints the metrics of both runs side by side.
+     * @return false when one of them regressed by more than the threshold.
+     */
+    private static boolean compare(Properties baseline, Properties current, double threshold) {
+        boolean passed = true;
+        for (String key : List.of("config.rate", "config.seconds", "config.mix")) {
+            if (!current.getProperty(key).equals(baseline.getProperty(key))) {
+                System.out.printf("warning: %s differs from the baseline (%s), the runs may not be comparable%n", key, baseline.getProperty(key));
+            }
+        }
+        System.out.printf("%-60s %12s %12s %8s%n", "metric", "baseline", "current", "change");
+        for (String key : current.stringPropertyNames().stream().sorted().toList()) {
+            int direction = direction(key);
+            String before = baseline.getProperty(key);
+            if (direction == 0 || before == null) {
+                continue;
+            }
+            double old = Double.parseDouble(before);
+            double now = Double.parseDouble(current.getProperty(key));
+            double change = old == 0 ? (now == 0 ? 0 : 1) : (now - old) / old;
+            boolean regressed = Math.abs(now - old) > noise(key) && change * direction < -threshold;
+            passed &= !regressed;
+            System.out.printf("%-60s %12s %12s %+7.1f%% %s%n", key, before, current.getProperty(key), change * 100, regressed ? "REGRESSED" : "");
+        }
+        return passed;
+    }
+
+    /**
+     * 1 when higher is better, -1 when lower is better, 0 for the metrics describing the run rather than judging it.
+     */
+    private static int direction(String key) {
+        if (key.equals("throughput")) {
+            return 1;
+        }
+        if (key.startsWith("latency.") || key.startsWith("endpoint.")) {
+            return key.endsWith(".count") ? 0 : -1;
+        }
+        return switch (key) {
+            case "errors", "dropped", "gc.pause.total", "gc.pause.max", "heap.used.max", "pool.pending.max", "pool.timeouts", "pool.acquire.mean" -> -1;
+            default -> 0;
+        };
+    }
+
+    /**
+     * Differences too small to be a regression, whatever the relative change.
+     */
+    private static double noise(String key) {
+        if (key.startsWith("latency.") || key.startsWith("endpoint.") || key.startsWith("gc.") || key.startsWith("pool.acquire")) {
+            return 1; // ms
+        }
+        if (key.startsWith("heap.")) {
+            return 16; // MB
+        }
+        return key.equals("throughput") ? 0.5 : 0;
+    }
+
+    private static Properties load(Path path) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    private static List<Request> readMix(Path path) throws IOException {
+        List<Request> mix = new ArrayList<>();
+        for (String line : Files.readAllLines(path)) {
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] fields = trimmed.split("\\s+");
+            mix.add(new Request(Integer.parseInt(fields[0]), fields[1], fields[2]));
+        }
+        return mix;
+    }
+
+    private static Request pick(List<Request> mix, int totalWeight) {
+        int value = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Request request : mix) {
+            value -= request.weight();
+            if (value < 0) {
+                return request;
+            }
+        }
+        return mix.get(mix.size() - 1);
+    }
+
+    private static String format(double value) {
+        return String.format(java.util.Locale.ROOT, "%.2f", value);
+    }
+
+    /**
+     * A line of the mix.
+     */
+    private record Request(int weight, String method, String path) {
+
+        String label() {
+            return (method + path).replaceAll("[^A-Za-z0-9]+", "_").replaceAll("_+$", "");
+        }
+
+        HttpRequest build(String baseUrl, Samples samples) {
+            Random random = ThreadLocalRandom.current();
+            String resolved = path.replace("{note}", samples.notes.get(random.nextInt(samples.notes.size())))
+                                  .replace("{tag}", samples.tags.get(random.nextInt(samples.tags.size())))
+                                  .replace("{word}", WORDS[random.nextInt(WORDS.length)])
+                                  .replace("{prefix}", samples.prefixes.get(random.nextInt(samples.prefixes.size())));
+            return HttpRequest.newBuilder(URI.create(baseUrl + resolved))
+                              .method(method, HttpRequest.BodyPublishers.noBody())
+                              .timeout(Duration.ofSeconds(30))
+                              .build();
+        }
+    }
+
+    /**
+     * IDs and names of existing notes and tags, the placeholders of the mix are replaced by them.
+     */
+    private record Samples(List<String> notes, List<String> tags, List<String> prefixes) {
+
+        static Samples load(HttpClient client, String baseUrl) throws IOException, InterruptedException {
+            List<String> notes = new ArrayList<>();
+            List<String> tags = new ArrayList<>();
+            List<String> prefixes = new ArrayList<>();
+            Matcher noteIds = NOTE_ID.matcher(get(client, baseUrl + "/notes/paginate?size=500"));
+            while (noteIds.find()) {
+                notes.add(noteIds.group(1));
+            }
+            Matcher tagIds = TAG.matcher(get(client, baseUrl + "/tags/slice?size=100") + get(client, baseUrl + "/tags/top?limit=20"));
+            while (tagIds.find()) {
+                tags.add(tagIds.group(1));
+                String name = tagIds.group(2);
+                prefixes.add(name.substring(0, Math.min(name.length(), 1 + prefixes.size() % 5)));
+            }
+            if (notes.isEmpty() || tags.isEmpty()) {
+                throw new IllegalStateException("No notes or tags to sample, generate a dataset first (DatasetGenerator.java).");
+            }
+            return new Samples(notes, tags, prefixes);
+        }
+
+        private static String get(HttpClient client, String url) throws IOException, InterruptedException {
+            return client.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString()).body();
+        }
+    }
+
+    /**
+     * Latency histogram in microseconds: 32 linear buckets per power of two, about 3% precision,
+     * a fixed size whatever the number of requests (soak tests).
+     */
+    private static class Histogram {
+
+        private static final int SUB_BUCKETS = 32;
+
+        private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long micros) {
+            long value = Math.max(1, micros);
+            int magnitude = 63 - Long.numberOfLeadingZeros(value);
+            int sub = magnitude < 5 ? (int) value : (int) ((value >> (magnitude - 5)) - SUB_BUCKETS);
+            counts.incrementAndGet(magnitude < 5 ? sub : magnitude * SUB_BUCKETS + sub);
+            total.incrementAndGet();
+            max.accumulateAndGet(value, Math::max);
+        }
+
+        long count() {
+            return total.get();
+        }
+
+        /**
+         * Upper bound of the bucket holding the percentile, in milliseconds.
+         */
+        double percentile(double percentile) {
+            long rank = (long) Math.ceil(percentile * total.get());
+            long seen = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                seen += counts.get(i);
+                if (seen >= rank && seen > 0) {
+                    return Math.min(upperBound(i), max.get()) / 1000.0;
+                }
+            }
+            return max.get() / 1000.0;
+        }
+
+        private static long upperBound(int index) {
+            if (index < 5 * SUB_BUCKETS) {
+                return index;
+            }
+            int magnitude = index / SUB_BUCKETS;
+            int sub = index % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << (magnitude - 5)) - 1;
+        }
+
+        void report(Properties results, String prefix) {
+            results.setProperty(prefix + ".count", Long.toString(total.get()));
+            results.setProperty(prefix + ".p50", format(percentile(0.50)));
+            results.setProperty(prefix + ".p90", format(percentile(0.90)));
+            results.setProperty(prefix + ".p99", format(percentile(0.99)));
+            results.setProperty(prefix + ".p999", format(percentile(0.999)));
+            results.setProperty(prefix + ".max", format(max.get() / 1000.0));
+        }
+    }
+
+    /**
+     * Samples the Prometheus endpoint of the application every second.
+     * Counters are reported as the difference between the first and the last sample, gauges as their max.
+     */
+    private static class ServerMetrics {
+
+        private final HttpClient client;
+        private final URI uri;
+        private final Map<String, Double> first = new TreeMap<>();
+        private final Map<String, Double> last = new TreeMap<>();
+        private final Map<String, Double> max = new TreeMap<>();
+        private final Map<String, Double> sum = new TreeMap<>();
+        private long samples;
+        private Thread sampler;
+
+        ServerMetrics(HttpClient client, String baseUrl) {
+            this.client = client;
+            this.uri = URI.create(baseUrl + "/actuator/prometheus");
+        }
+
+        void start() {
+            sampler = Thread.ofPlatform().daemon().start(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    try {
+                        sample();
+                        Thread.sleep(1000);
+                    } catch (InterruptedException e) {
+                        return;
+                    } catch (IOException e) {
+                        // Missing samples only make the gauges less precise.
+                    }
+                }
+            });
+        }
+
+        void stop() throws InterruptedException {
+            sampler.interrupt();
+            sampler.join();
+            try {
+                sample();
+            } catch (IOException e) {
+                // An overloaded server may not answer, the last sample taken is used.
+            }
+        }
+
+        private synchronized void sample() throws IOException, InterruptedException {
+            String body = client.send(HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(5)).build(), HttpResponse.BodyHandlers.ofString()).body();
+            Map<String, Double> values = new TreeMap<>();
+            for (String line : body.lines().toList()) {
+                Matcher matcher = METRIC.matcher(line);
+                if (line.startsWith("#") || !matcher.find()) {
+                    continue;
+                }
+                String name = matcher.group(1);
+                String labels = matcher.group(2) == null ? "" : matcher.group(2);
+                double value = Double.parseDouble(matcher.group(3));
+                // Summed over the pools, the collectors and the memory pools.
+                switch (name) {
+                    case "jvm_gc_pause_seconds_count", "jvm_gc_pause_seconds_sum", "hikaricp_connections_timeout_total",
+                         "hikaricp_connections_active", "hikaricp_connections_pending", "hikaricp_connections_max",
+                         "hikaricp_connections_acquire_seconds_sum", "hikaricp_connections_acquire_seconds_count" -> values.merge(name, value, Double::sum);
+                    case "jvm_gc_pause_seconds_max" -> values.merge(name, value, Math::max);
+                    case "jvm_memory_used_bytes" -> {
+                        if (labels.contains("area=\"heap\"")) {
+                            values.merge(name, value, Double::sum);
+                        }
+                    }
+                    case "process_cpu_usage" -> values.put(name, value);
+                    default -> {
+                    }
+                }
+            }
+            values.forEach((name, value) -> {
+                first.putIfAbsent(name, value);
+                last.put(name, value);
+                max.merge(name, value, Math::max);
+                sum.merge(name, value, Double::sum);
+            });
+            samples++;
+        }
+
+        synchronized void report(Properties results) {
+            results.setProperty("gc.pauses", format(delta("jvm_gc_pause_seconds_count")));
+            results.setProperty("gc.pause.total", format(delta("jvm_gc_pause_seconds_sum") * 1000));
+            results.setProperty("gc.pause.max", format(max.getOrDefault("jvm_gc_pause_seconds_max", 0.0) * 1000));
+            results.setProperty("heap.used.max", format(max.getOrDefault("jvm_memory_used_bytes", 0.0) / (1024 * 1024)));
+            results.setProperty("cpu.mean", format(sum.getOrDefault("process_cpu_usage", 0.0) / Math.max(1, samples)));
+            results.setProperty("pool.max", format(max.getOrDefault("hikaricp_connections_max", 0.0)));
+            results.setProperty("pool.active.max", format(max.getOrDefault("hikaricp_connections_active", 0.0)));
+            results.setProperty("pool.active.mean", format(sum.getOrDefault("hikaricp_connections_active", 0.0) / Math.max(1, samples)));
+            results.setProperty("pool.pending.max", format(max.getOrDefault("hikaricp_connections_pending", 0.0)));
+            results.setProperty("pool.timeouts", format(delta("hikaricp_connections_timeout_total")));
+            double acquisitions = delta("hikaricp_connections_acquire_seconds_count");
+            results.setProperty("pool.acquire.mean", format(acquisitions == 0 ? 0 : delta("hikaricp_connections_acquire_seconds_sum") * 1000 / acquisitions));
+        }
+
+        private double delta(String name) {
+            return last.getOrDefault(name, 0.0) - first.getOrDefault(name, 0.0);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+#!/bin/bash
+# Replays the request mix at a target rate against a freshly started application and writes a report,
+# compared with the report of a previous run when BASELINE is set (exit status 1 on a regression).
+# Needs the database of application.properties, filled beforehand with bench/DatasetGenerator.java, or
+# with NOTES=<count> to generate it first (added to what is already there).
+# Tune with RATE (requests per second), DURATION and WARMUP (seconds), MIX, BASELINE, THRESHOLD and JAVA_OPTS.
+# A soak test is a long DURATION, e.g. RATE=100 DURATION=3600 bench/load.sh
+set -e
+cd "$(dirname "$0")/.."
+
+RATE=${RATE:-50}
+DURATION=${DURATION:-120}
+WARMUP=${WARMUP:-30}
+MIX=${MIX:-bench/mix.txt}
+THRESHOLD=${THRESHOLD:-0.1}
+MVN=${MVN:-./mvnw}
+REPORT=${REPORT:-target/load/$(date +%Y%m%d-%H%M%S).properties}
+
+$MVN -q -B -DskipTests package
+JAR=$(ls target/notes-*.jar | head -1)
+
+java $JAVA_OPTS -jar "$JAR" --spring.profiles.active=prod > target/load.log 2>&1 &
+PID=$!
+trap 'kill $PID 2> /dev/null; wait $PID 2> /dev/null || true' EXIT
+until curl -sf http://localhost:8080/actuator/health > /dev/null; do sleep 1; done
+
+if [ -n "$NOTES" ]; then
+    java bench/DatasetGenerator.java http://localhost:8080 "$NOTES" "${TAGS:-2000}" "${SEED:-42}"
+fi
+
+# Warm up the JIT, the caches and the connection pool, the report is discarded.
+java bench/LoadDriver.java http://localhost:8080 "$RATE" "$WARMUP" "$MIX" target/load/warmup.properties > /dev/null
+java -Dthreshold="$THRESHOLD" bench/LoadDriver.java http://localhost:8080 "$RATE" "$DURATION" "$MIX" "$REPORT" $BASELINE
+echo "Report: $REPORT"
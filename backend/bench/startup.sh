@@ -0,0 +1,57 @@
+#!/bin/bash
+# Compares the startup of the application on the JVM, with AOT, with AOT and CDS, and as a native executable:
+# the time from launch to the first successful request, and the resident memory (RSS) right after it.
+# Build with ./mvnw -Pcds -DskipTests package first, and ./mvnw -Pnative -DskipTests package for the native
+# executable (skipped when target/notes is missing). Needs the database of application.properties.
+# Every mode runs with the prod profile, so without schema validation unless NOTES_SCHEMA_VALIDATION=validate.
+# Tune with RUNS (per mode, the median is printed), URL and JAVA_OPTS.
+set -e
+cd "$(dirname "$0")/.."
+
+RUNS=${RUNS:-5}
+URL=${URL:-http://localhost:8080/notes/paginate?size=1}
+echo "Schema validation: ${NOTES_SCHEMA_VALIDATION:-none}"
+JAR=$(ls target/notes-*.jar | head -1)
+
+# Every command execs the application, so the PID is the one to measure and stop.
+# The CDS archive only maps with the class path it was recorded with, the extracted jar run from its directory.
+declare -A COMMANDS=(
+    [jvm]="exec java $JAVA_OPTS -jar $JAR"
+    [aot]="cd target/cds && exec java $JAVA_OPTS -Dspring.aot.enabled=true -jar notes.jar"
+    [cds]="cd target/cds && exec java $JAVA_OPTS -Xshare:auto -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true -jar notes.jar"
+)
+MODES="jvm aot cds"
+if [ -x target/notes ]; then
+    COMMANDS[native]="exec target/notes"
+    MODES="$MODES native"
+fi
+
+median() {
+    sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+for MODE in $MODES; do
+    TIMES=()
+    RSS=()
+    for RUN in $(seq "$RUNS"); do
+        if curl -s -o /dev/null "$URL"; then
+            echo "$URL already answers, stop the running application first" >&2
+            exit 1
+        fi
+        START=$(date +%s%N)
+        (eval "${COMMANDS[$MODE]} --spring.profiles.active=prod") > "target/startup-$MODE.log" 2>&1 &
+        PID=$!
+        until curl -sf -o /dev/null "$URL"; do
+            if ! kill -0 $PID 2> /dev/null; then
+                echo "$MODE failed to start, see target/startup-$MODE.log" >&2
+                exit 1
+            fi
+            sleep 0.02
+        done
+        TIMES+=($(( ($(date +%s%N) - START) / 1000000 )))
+        RSS+=($(awk '/VmRSS/ { print int($2 / 1024) }' /proc/$PID/status))
+        kill $PID
+        wait $PID || true
+    done
+    echo "$MODE: first request after $(printf '%s\n' "${TIMES[@]}" | median) ms, RSS $(printf '%s\n' "${RSS[@]}" | median) MB (median of $RUNS)"
+done
@@ -0,0 +1,28 @@
+#!/bin/bash
+# Compares throughput and p99 latency of the default platform thread pool and of virtual threads.
+# Needs the database of application.properties. Tune with CLIENTS, DURATION (seconds) and PATHS.
+set -e
+cd "$(dirname "$0")/.."
+
+CLIENTS=${CLIENTS:-400}
+DURATION=${DURATION:-30}
+MVN=${MVN:-./mvnw}
+PATHS=${PATHS:-/notes/paginate?size=50,/tags/,/notes/search?q=note,/notes/changes?since=0}
+
+$MVN -q -B -DskipTests package
+JAR=$(ls target/notes-*.jar | head -1)
+
+for VIRTUAL in false true; do
+    java -jar "$JAR" --spring.threads.virtual.enabled=$VIRTUAL \
+                     --spring.jpa.show-sql=false \
+                     --logging.level.org.hibernate.orm.jdbc.bind=INFO > "target/bench-virtual-$VIRTUAL.log" 2>&1 &
+    PID=$!
+    until curl -sf http://localhost:8080/actuator/health > /dev/null; do sleep 1; done
+
+    # Warm up the JIT, the caches and the connection pool.
+    java bench/ThreadModeBenchmark.java http://localhost:8080 "$CLIENTS" 10 "$PATHS" > /dev/null
+    echo "virtual threads=$VIRTUAL: $(java bench/ThreadModeBenchmark.java http://localhost:8080 "$CLIENTS" "$DURATION" "$PATHS")"
+
+    kill $PID
+    wait $PID || true
+done
@@ -12,6 +12,27 @@ CREATE TABLE public.notes (
 
 -- Constraint to check if either title or body is not empty/null 
 alter table public.notes add constraint chk_title_or_body_null_empty check ( coalesce(trim(title), '') = '' is false or coalesce(trim(body), '') = '' is false );
+-- Index used by the keyset pagination (seek on created_at, note_id)
+CREATE INDEX notes_created_at_id_idx ON public.notes USING btree (created_at, note_id);
+-- Full text search document over title and body, and the index used by the search
+ALTER TABLE public.notes ADD COLUMN search_vector tsvector GENERATED ALWAYS AS (to_tsvector('simple', coalesce(title, '') || ' ' || coalesce(body, ''))) STORED;
+CREATE INDEX notes_search_idx ON public.notes USING gin (search_vector);
+-- Index used to compute the version of the notes (max(updated_at)) for the ETags
+CREATE INDEX notes_updated_at_idx ON public.notes USING btree (updated_at);
+-- Optimistic lock, incremented by every update of the note (PATCH /notes/{uuid} is checked against it)
+ALTER TABLE public.notes ADD COLUMN version bigint DEFAULT 0 NOT NULL;
+-- Excerpt returned by the list endpoints instead of the body (NoteSummaryEntity.EXCERPT_LENGTH characters)
+ALTER TABLE public.notes ADD COLUMN excerpt varchar(200) GENERATED ALWAYS AS (left(body, 200)) STORED;
+-- Bodies are compressed and moved out of the row once it is over toast_tuple_target bytes,
+-- so the lists, which only read the excerpt, scan small rows. lz4 when the server supports it.
+ALTER TABLE public.notes SET (toast_tuple_target = 1024);
+DO $$
+BEGIN
+	ALTER TABLE public.notes ALTER COLUMN body SET COMPRESSION lz4;
+EXCEPTION WHEN feature_not_supported THEN
+	RAISE NOTICE 'lz4 is not supported by this server, note bodies keep the default compression';
+END;
+$$;
 
 -- Tags table
 CREATE TABLE public.tags (
@@ -24,6 +45,8 @@ CREATE TABLE public.tags (
 );
 -- Index to check if a tag name is unique ignoring case
 CREATE UNIQUE INDEX tag_name_idx ON public.tags USING btree (TRIM(BOTH FROM lower((name)::text)));
+-- Index used to compute the version of the tags (max(updated_at)) for the ETags
+CREATE INDEX tags_updated_at_idx ON public.tags USING btree (updated_at);
 
 -- Relationship table between Notes x Tags
 CREATE TABLE public.notes_tags (
@@ -31,4 +54,93 @@ CREATE TABLE public.notes_tags (
 	tag_id UUID NOT NULL
 );
 -- Adding constraints
-ALTER TABLE public.notes_tags ADD CONSTRAINT note_fk_tag_fk_uk check (note_id, tag_id) UNIQUE;
\ No newline at end of file
+ALTER TABLE public.notes_tags ADD CONSTRAINT notes_tags_pkey PRIMARY KEY (note_id, tag_id);
+
+-- Change feed used by the delta sync (GET /notes/changes), filled by triggers so every write path is captured
+CREATE SEQUENCE public.changes_seq;
+CREATE TABLE public.changes (
+	change_id bigint DEFAULT nextval('public.changes_seq') NOT NULL,
+	entity_type varchar(8) NOT NULL,
+	entity_id UUID NOT NULL,
+	related_id UUID NULL,
+	operation varchar(6) NOT NULL,
+	changed_at timestamp DEFAULT CURRENT_TIMESTAMP NOT NULL,
+	CONSTRAINT changes_pkey PRIMARY KEY (change_id)
+);
+-- Index used to prune the old changes
+CREATE INDEX changes_changed_at_idx ON public.changes USING btree (changed_at);
+-- Transaction that wrote the change. Change IDs are handed out in allocation order, not commit order, so the feed reads
+-- the changes in transaction order instead, and only those of the transactions older than the oldest one still running
+-- (pg_snapshot_xmin): a transaction committing later cannot add a change before them. The sync token is the last
+-- transaction ID a client has all the changes of.
+ALTER TABLE public.changes ADD COLUMN xact_id bigint DEFAULT pg_current_xact_id()::text::bigint NOT NULL;
+CREATE INDEX changes_xact_id_idx ON public.changes USING btree (xact_id, change_id);
+-- Last transaction whose changes were pruned, a client with an older sync token must download everything again
+CREATE TABLE public.changes_horizon (
+	pruned_through bigint NOT NULL
+);
+INSERT INTO public.changes_horizon (pruned_through) VALUES (0);
+
+-- Every change is also published on the changes channel (NOTIFY), delivered to the listeners on commit
+CREATE OR REPLACE FUNCTION public.log_change() RETURNS trigger AS $$
+DECLARE
+	change public.changes%ROWTYPE;
+BEGIN
+	IF TG_TABLE_NAME = 'notes_tags' THEN
+		IF TG_OP = 'DELETE' THEN
+			INSERT INTO public.changes (entity_type, entity_id, related_id, operation) VALUES ('note_tag', OLD.note_id, OLD.tag_id, 'delete') RETURNING * INTO change;
+		ELSE
+			INSERT INTO public.changes (entity_type, entity_id, related_id, operation) VALUES ('note_tag', NEW.note_id, NEW.tag_id, 'upsert') RETURNING * INTO change;
+		END IF;
+	ELSIF TG_TABLE_NAME = 'notes' THEN
+		IF TG_OP = 'DELETE' THEN
+			INSERT INTO public.changes (entity_type, entity_id, operation) VALUES ('note', OLD.note_id, 'delete') RETURNING * INTO change;
+		ELSE
+			INSERT INTO public.changes (entity_type, entity_id, operation) VALUES ('note', NEW.note_id, 'upsert') RETURNING * INTO change;
+		END IF;
+	ELSE
+		IF TG_OP = 'DELETE' THEN
+			INSERT INTO public.changes (entity_type, entity_id, operation) VALUES ('tag', OLD.tag_id, 'delete') RETURNING * INTO change;
+		ELSE
+			INSERT INTO public.changes (entity_type, entity_id, operation) VALUES ('tag', NEW.tag_id, 'upsert') RETURNING * INTO change;
+		END IF;
+	END IF;
+	PERFORM pg_notify('changes', json_build_object('id', change.change_id, 'type', change.entity_type, 'entityId', change.entity_id,
+	                                               'relatedId', change.related_id, 'operation', change.operation)::text);
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER notes_log_change AFTER INSERT OR UPDATE OR DELETE ON public.notes FOR EACH ROW EXECUTE FUNCTION public.log_change();
+-- Only the columns written by the application, the note counts below are not changes of the tag
+CREATE TRIGGER tags_log_change AFTER INSERT OR UPDATE OF name, updated_at OR DELETE ON public.tags FOR EACH ROW EXECUTE FUNCTION public.log_change();
+CREATE TRIGGER notes_tags_log_change AFTER INSERT OR DELETE ON public.notes_tags FOR EACH ROW EXECUTE FUNCTION public.log_change();
+
+-- Number of notes of every tag, kept up to date by the triggers on notes_tags whatever adds or removes the links.
+-- The counts of a statement are summed per tag first, so a bulk insert updates each tag once. Linking a tag locks
+-- its row until the transaction ends, concurrent writers linking the same tag wait for each other; the rows are
+-- locked in tag_id order first, two batches sharing tags would deadlock locking them in the order of the update.
+ALTER TABLE public.tags ADD COLUMN note_count integer DEFAULT 0 NOT NULL;
+-- Index used by the most used tags (GET /tags/top)
+CREATE INDEX tags_note_count_idx ON public.tags USING btree (note_count DESC, name);
+
+CREATE OR REPLACE FUNCTION public.count_note_tags() RETURNS trigger AS $$
+BEGIN
+	IF TG_OP = 'INSERT' THEN
+		PERFORM 1 FROM public.tags t WHERE t.tag_id IN (SELECT tag_id FROM added) ORDER BY t.tag_id FOR NO KEY UPDATE;
+		UPDATE public.tags t SET note_count = t.note_count + l.notes
+		FROM (SELECT tag_id, count(*) AS notes FROM added GROUP BY tag_id) l WHERE t.tag_id = l.tag_id;
+	ELSE
+		PERFORM 1 FROM public.tags t WHERE t.tag_id IN (SELECT tag_id FROM removed) ORDER BY t.tag_id FOR NO KEY UPDATE;
+		UPDATE public.tags t SET note_count = t.note_count - l.notes
+		FROM (SELECT tag_id, count(*) AS notes FROM removed GROUP BY tag_id) l WHERE t.tag_id = l.tag_id;
+	END IF;
+	RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER notes_tags_count_insert AFTER INSERT ON public.notes_tags REFERENCING NEW TABLE AS added FOR EACH STATEMENT EXECUTE FUNCTION public.count_note_tags();
+CREATE TRIGGER notes_tags_count_delete AFTER DELETE ON public.notes_tags REFERENCING OLD TABLE AS removed FOR EACH STATEMENT EXECUTE FUNCTION public.count_note_tags();
+
+-- Counts of the links created before the triggers
+UPDATE public.tags t SET note_count = (SELECT count(*) FROM public.notes_tags nt WHERE nt.tag_id = t.tag_id);
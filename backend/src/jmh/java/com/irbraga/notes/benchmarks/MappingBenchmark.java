@@ -0,0 +1,81 @@
+package com.irbraga.notes.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+
+import com.irbraga.notes.dto.NoteDto;
+import com.irbraga.notes.dto.TagDto;
+import com.irbraga.notes.entities.NoteEntity;
+import com.irbraga.notes.entities.TagEntity;
+import com.irbraga.notes.mappers.NotesMapper;
+import com.irbraga.notes.mappers.NotesMapperImpl;
+import com.irbraga.notes.mappers.TagsMapper;
+import com.irbraga.notes.mappers.TagsMapperImpl;
+
+/**
+ * DTO to entity mapping done by the controllers: the generated mappers, BeanUtils.copyProperties
+ * they replaced and plain setters as the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark {
+
+    private final NoteDto noteDto = new NoteDto("Groceries", "Milk, eggs and bread.", "#1A2B3C");
+    private final TagDto tagDto = new TagDto("shopping");
+    private final TagsMapper tagsMapper = new TagsMapperImpl();
+    private final NotesMapper notesMapper = new NotesMapperImpl(tagsMapper);
+
+    @Benchmark
+    public NoteEntity noteMapper() {
+        return notesMapper.toEntity(noteDto);
+    }
+
+    @Benchmark
+    public NoteEntity noteCopyProperties() {
+        NoteEntity note = new NoteEntity();
+        BeanUtils.copyProperties(noteDto, note);
+        return note;
+    }
+
+    @Benchmark
+    public NoteEntity noteSetters() {
+        NoteEntity note = new NoteEntity();
+        note.setTitle(noteDto.title());
+        note.setBody(noteDto.body());
+        note.setColor(noteDto.color());
+        return note;
+    }
+
+    @Benchmark
+    public TagEntity tagMapper() {
+        return tagsMapper.toEntity(tagDto);
+    }
+
+    @Benchmark
+    public TagEntity tagCopyProperties() {
+        TagEntity tag = new TagEntity();
+        BeanUtils.copyProperties(tagDto, tag);
+        return tag;
+    }
+
+    @Benchmark
+    public TagEntity tagSetters() {
+        TagEntity tag = new TagEntity();
+        tag.setName(tagDto.name());
+        return tag;
+    }
+}
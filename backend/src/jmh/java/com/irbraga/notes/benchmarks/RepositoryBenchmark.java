@@ -0,0 +1,189 @@
+package com.irbraga.notes.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.irbraga.notes.NotesApplication;
+import com.irbraga.notes.dto.CollectionVersion;
+import com.irbraga.notes.dto.NoteSearchResult;
+import com.irbraga.notes.entities.NoteEntity;
+import com.irbraga.notes.entities.NoteSummaryEntity;
+import com.irbraga.notes.entities.TagEntity;
+import com.irbraga.notes.repositories.NoteSummariesRepository;
+import com.irbraga.notes.repositories.NotesRepository;
+import com.irbraga.notes.repositories.TagsRepository;
+import com.irbraga.notes.services.NotesBulkService;
+
+/**
+ * Repository calls behind the read endpoints, against a throwaway notes_bench database
+ * created from ddl/ddl.sql on the local PostgreSQL server (no containers needed).
+ * Caching is turned off so every call reaches the database.
+ *
+ * The server is configured with -Dnotes.bench.url, -Dnotes.bench.username and -Dnotes.bench.password,
+ * the defaults are the ones in application.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final String DATABASE = "notes_bench";
+    private static final int NOTES = 2000;
+    private static final int TAGS = 20;
+    private static final int TAGS_PER_NOTE = 3;
+    private static final int PAGE_SIZE = 50;
+
+    private final String serverUrl = System.getProperty("notes.bench.url", "jdbc:postgresql://localhost:5432/");
+    private final String username = System.getProperty("notes.bench.username", "postgres");
+    private final String password = System.getProperty("notes.bench.password", "postgres");
+
+    private ConfigurableApplicationContext context;
+    private NotesRepository notesRepository;
+    private NoteSummariesRepository noteSummariesRepository;
+    private TagsRepository tagsRepository;
+    private UUID noteId;
+    private UUID tagId;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException, IOException {
+        createDatabase();
+
+        context = new SpringApplicationBuilder(NotesApplication.class)
+            .web(WebApplicationType.NONE)
+            // Arguments, not properties(), so they take precedence over application.properties.
+            .run("--spring.datasource.url=" + serverUrl + DATABASE + "?reWriteBatchedInserts=true",
+                 "--spring.datasource.username=" + username,
+                 "--spring.datasource.password=" + password,
+                 "--spring.cache.type=none",
+                 "--spring.jpa.show-sql=false",
+                 "--logging.level.org.hibernate.orm.jdbc.bind=INFO",
+                 "--logging.level.root=WARN");
+        notesRepository = context.getBean(NotesRepository.class);
+        noteSummariesRepository = context.getBean(NoteSummariesRepository.class);
+        tagsRepository = context.getBean(TagsRepository.class);
+
+        seed(context.getBean(NotesBulkService.class));
+        noteId = noteSummariesRepository.findFirstPage(1).get(0).getId();
+        tagId = tagsRepository.findAll().get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        context.close();
+        try (Connection connection = DriverManager.getConnection(serverUrl + "postgres", username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + DATABASE);
+        }
+    }
+
+    private void createDatabase() throws SQLException, IOException {
+        try (Connection connection = DriverManager.getConnection(serverUrl + "postgres", username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP DATABASE IF EXISTS " + DATABASE);
+            statement.execute("CREATE DATABASE " + DATABASE);
+        }
+        String ddl = Files.readString(Path.of(System.getProperty("notes.bench.ddl", "ddl/ddl.sql")));
+        try (Connection connection = DriverManager.getConnection(serverUrl + DATABASE, username, password);
+             Statement statement = connection.createStatement()) {
+            statement.execute(ddl);
+        }
+    }
+
+    /**
+     * Imports the notes through the bulk endpoint's service, every note with TAGS_PER_NOTE of the TAGS tags.
+     */
+    private void seed(NotesBulkService bulkService) throws IOException {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < NOTES; i++) {
+            StringBuilder tags = new StringBuilder();
+            for (int t = 0; t < TAGS_PER_NOTE; t++) {
+                tags.append(t == 0 ? "" : ",").append("\"tag-").append((i + t) % TAGS).append('"');
+            }
+            ndjson.append("{\"title\":\"Note ").append(i)
+                  .append("\",\"body\":\"Lorem ipsum dolor sit amet number ").append(i)
+                  .append(", consectetur adipiscing elit.\",\"color\":\"#FFFFFF\",\"tags\":[")
+                  .append(tags).append("]}\n");
+        }
+        bulkService.importNdjson(new ByteArrayInputStream(ndjson.toString().getBytes(StandardCharsets.UTF_8)),
+                                 OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public List<NoteSummaryEntity> listNotes() {
+        return noteSummariesRepository.findAll();
+    }
+
+    /**
+     * The list before it returned excerpts, as the baseline.
+     */
+    @Benchmark
+    public List<NoteEntity> listNotesWithBodies() {
+        return notesRepository.findAll();
+    }
+
+    @Benchmark
+    public Optional<NoteEntity> getNote() {
+        return notesRepository.findCachedById(noteId);
+    }
+
+    @Benchmark
+    public List<NoteSummaryEntity> listNotesByTag() {
+        return noteSummariesRepository.findByTagsId(tagId);
+    }
+
+    @Benchmark
+    public List<NoteSummaryEntity> paginateNotes() {
+        return noteSummariesRepository.findFirstPage(PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<NoteSearchResult> searchNotes() {
+        return notesRepository.search("lorem", PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CollectionVersion notesVersion() {
+        return notesRepository.findVersion();
+    }
+
+    @Benchmark
+    public List<TagEntity> listTags() {
+        return tagsRepository.findAllCached();
+    }
+
+    @Benchmark
+    public Optional<TagEntity> getTag() {
+        return tagsRepository.findCachedById(tagId);
+    }
+}
@@ -0,0 +1,102 @@
+package com.irbraga.notes.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.irbraga.notes.entities.NoteEntity;
+import com.irbraga.notes.entities.TagEntity;
+import com.irbraga.notes.mappers.NotesMapper;
+import com.irbraga.notes.mappers.NotesMapperImpl;
+import com.irbraga.notes.mappers.TagsMapperImpl;
+
+/**
+ * Jackson serialization of notes with their tags, the way the controllers return them (mapped to response records)
+ * and serializing the entities directly as they did before. Run with -prof gc to compare the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"0", "5", "20"})
+    private int tagsPerNote;
+
+    private ObjectMapper mapper;
+    private final NotesMapper notesMapper = new NotesMapperImpl(new TagsMapperImpl());
+    private NoteEntity note;
+    private List<NoteEntity> page;
+
+    @Setup
+    public void setup() {
+        // Same defaults as the ObjectMapper Spring Boot configures for the controllers.
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<TagEntity> tags = new ArrayList<>();
+        for (int i = 0; i < tagsPerNote; i++) {
+            TagEntity tag = new TagEntity();
+            tag.setId(UUID.randomUUID());
+            tag.setName("tag-" + i);
+            tag.setCreatedAt(new Date());
+            tag.setUpdatedAt(new Date());
+            tag.setNotes(new ArrayList<>());
+            tags.add(tag);
+        }
+
+        page = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            NoteEntity n = new NoteEntity();
+            n.setId(UUID.randomUUID());
+            n.setTitle("Note " + i);
+            n.setBody("Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore. ".repeat(5));
+            n.setColor("#FFFFFF");
+            n.setCreatedAt(new Date());
+            n.setUpdatedAt(new Date());
+            n.setTags(tags);
+            // Back references are skipped by @JsonBackReference, they are set so the graph is the one Hibernate loads.
+            tags.forEach(t -> t.getNotes().add(n));
+            page.add(n);
+        }
+        note = page.get(0);
+    }
+
+    @Benchmark
+    public String noteResponse() throws JsonProcessingException {
+        return mapper.writeValueAsString(notesMapper.toResponse(note));
+    }
+
+    @Benchmark
+    public String noteEntity() throws JsonProcessingException {
+        return mapper.writeValueAsString(note);
+    }
+
+    @Benchmark
+    public byte[] pageOf50Response() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(notesMapper.toResponse(page));
+    }
+
+    @Benchmark
+    public byte[] pageOf50Entity() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(page);
+    }
+}
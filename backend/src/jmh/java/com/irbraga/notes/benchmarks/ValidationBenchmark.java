@@ -0,0 +1,74 @@
+package com.irbraga.notes.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.irbraga.notes.dto.NoteDto;
+import com.irbraga.notes.dto.TagDto;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+
+/**
+ * Bean validation of the request bodies, what @Valid costs on every create and update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private ValidatorFactory factory;
+    private Validator validator;
+
+    private final NoteDto validNote = new NoteDto("Groceries", "Milk, eggs and bread.", "#1A2B3C");
+    private final NoteDto invalidNote = new NoteDto("", " ", "#XYZXYZ");
+    private final TagDto validTag = new TagDto("shopping");
+
+    @Setup
+    public void setup() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+    }
+
+    @TearDown
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<NoteDto>> validNote() {
+        return validator.validate(validNote);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<NoteDto>> invalidNote() {
+        return validator.validate(invalidNote);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<TagDto>> validTag() {
+        return validator.validate(validTag);
+    }
+
+    @Benchmark
+    public boolean colorRegex() {
+        return validNote.isColorHexColorValid();
+    }
+}
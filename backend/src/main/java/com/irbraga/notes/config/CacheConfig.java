@@ -0,0 +1,23 @@
+package com.irbraga.notes.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Read-through caches around the repository lookups.
+ * The caches are Caffeine caches configured by the spring.cache.* properties,
+ * they are filled by the @Cacheable repository methods and evicted by the repository writes.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    // Notes by ID.
+    public static final String NOTES = "notes";
+    // Notes of a tag, by tag ID.
+    public static final String NOTES_BY_TAG = "notesByTag";
+    // Tags by ID.
+    public static final String TAGS = "tags";
+    // All tags.
+    public static final String TAG_LIST = "tagList";
+}
@@ -0,0 +1,139 @@
+package com.irbraga.notes.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.boot.actuate.metrics.cache.CaffeineCacheMeterBinderProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Read replicas, enabled by notes.datasource.replicas (comma separated JDBC URLs).
+ *
+ * The primary pool is the one Spring Boot would create from the spring.datasource.* properties, and every
+ * replica gets its own pool configured by notes.datasource.replica.hikari.* (same credentials as the primary
+ * by default). The application DataSource hands out lazy connections: the target is chosen on the first
+ * statement, when the transaction is known to be read-only or not. Read-only transactions, which include
+ * the repository queries, go to ReplicaRoutingDataSource; everything else goes to the primary.
+ */
+@Configuration
+@ConditionalOnProperty("notes.datasource.replicas")
+public class DataSourceConfig {
+
+    private static final String REPLICA_HIKARI_PREFIX = "notes.datasource.replica.hikari";
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(HikariDataSource primaryDataSource, DataSourceProperties properties, Environment environment,
+                                                      MeterRegistry meterRegistry,
+                                                      @Value("${notes.datasource.replicas}") List<String> urls,
+                                                      @Value("${notes.datasource.replica.max-lag:1s}") Duration maxLag) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("notes-replica-" + i);
+            config.setJdbcUrl(urls.get(i).trim());
+            config.setUsername(properties.determineUsername());
+            config.setPassword(properties.determinePassword());
+            // A replica down at startup is left out until it is back, the application still starts.
+            config.setInitializationFailTimeout(-1);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            Binder.get(environment).bind(REPLICA_HIKARI_PREFIX, Bindable.ofInstance(config));
+            replicas.add(new HikariDataSource(config));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, maxLag);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(@Value("${notes.datasource.replica.sticky-window:5s}") Duration stickyWindow) {
+        return new ReadYourWritesFilter(stickyWindow);
+    }
+
+    /**
+     * Carries the read-your-writes pin of the submitting thread to the tasks of the application executor,
+     * which runs the streamed responses and the other async work of the requests.
+     * @return
+     */
+    @Bean
+    public TaskDecorator readYourWritesTaskDecorator() {
+        return task -> {
+            boolean primaryOnly = ReplicaRoutingDataSource.isPrimaryOnly();
+            return () -> {
+                ReplicaRoutingDataSource.setPrimaryOnly(primaryOnly);
+                try {
+                    task.run();
+                } finally {
+                    ReplicaRoutingDataSource.setPrimaryOnly(false);
+                }
+            };
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor replicaLagCachePostProcessor(Environment environment) {
+        Duration delay = environment.getProperty("notes.datasource.replica.max-lag", Duration.class, Duration.ofSeconds(1))
+                                    .plusMillis(environment.getProperty("notes.datasource.replica.lag-check-interval", Long.class, 1000L));
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof CacheManager cacheManager && !(bean instanceof ReplicaLagCacheManager)) {
+                    return new ReplicaLagCacheManager(cacheManager, delay);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Keeps the cache.* metrics of the Caffeine caches behind ReplicaLagCacheManager.
+     * @return
+     */
+    @Bean
+    public CacheMeterBinderProvider<ReplicaLagCacheManager.ReplicaLagCache> replicaLagCacheMeterBinderProvider() {
+        CaffeineCacheMeterBinderProvider caffeine = new CaffeineCacheMeterBinderProvider();
+        return new CacheMeterBinderProvider<>() {
+            @Override
+            public MeterBinder getMeterBinder(ReplicaLagCacheManager.ReplicaLagCache cache, Iterable<Tag> tags) {
+                return cache.getTargetCache() instanceof CaffeineCache target ? caffeine.getMeterBinder(target, tags) : null;
+            }
+        };
+    }
+}
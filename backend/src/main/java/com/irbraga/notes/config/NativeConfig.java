@@ -0,0 +1,36 @@
+package com.irbraga.notes.config;
+
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+
+import com.irbraga.notes.dto.BulkItemResult;
+import com.irbraga.notes.dto.ChangeEvent;
+import com.irbraga.notes.dto.CollectionVersion;
+import com.irbraga.notes.dto.KeysetPage;
+import com.irbraga.notes.dto.NoteImportDto;
+import com.irbraga.notes.dto.NoteSearchResult;
+import com.irbraga.notes.dto.NoteSummaryList;
+import com.irbraga.notes.dto.NoteSummaryReturnObject;
+import com.irbraga.notes.dto.TagCountReturnObject;
+import com.irbraga.notes.dto.TagReturnObject;
+import com.irbraga.notes.dto.TagSuggestion;
+
+/**
+ * Reflection the native image (-Pnative) needs and the AOT processing cannot infer from the controller signatures.
+ *
+ * The entities, the repositories, the request bodies and the typed responses are registered by Spring. Left are
+ * the objects Jackson reads or writes outside of them (responses declared as Object or ResponseEntity<?>, the
+ * bulk import lines, the bulk results, the change notifications) and the DTOs Hibernate builds with the JPQL
+ * constructor expressions. Lombok only generates code at compile time and needs none.
+ */
+@Configuration
+@RegisterReflectionForBinding({
+    // Jackson, outside of the typed controller methods.
+    NoteSummaryList.class, NoteSummaryList.Note.class, KeysetPage.class, NoteSummaryReturnObject.class, TagReturnObject.class,
+    NoteSearchResult.class, NoteImportDto.class, BulkItemResult.class, ChangeEvent.class,
+    // Hibernate, SELECT new ...
+    CollectionVersion.class, TagSuggestion.class, TagCountReturnObject.class
+})
+public class NativeConfig {
+
+}
@@ -0,0 +1,87 @@
+package com.irbraga.notes.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Sends the reads of a client that has just written to the primary, so it sees its own writes
+ * while the replicas catch up.
+ *
+ * Writes mark the client with a cookie holding the time until which it reads from the primary,
+ * the sticky window: longer than the max replica lag and the autosave flush interval. The writes
+ * themselves run on the primary, reads included: with the session open for the whole request
+ * (open-in-view), the connection of the first transaction is used by all the others.
+ *
+ * The decision is kept in a request attribute for the async dispatches of the request, and the
+ * async work started by it gets it through the task decorator of DataSourceConfig.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE = "notes-read-primary-until";
+    public static final String PRIMARY_ONLY_ATTRIBUTE = ReadYourWritesFilter.class.getName() + ".PRIMARY_ONLY";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final Duration stickyWindow;
+
+    public ReadYourWritesFilter(Duration stickyWindow) {
+        this.stickyWindow = stickyWindow;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // Decided on the first dispatch, the async ones reuse it.
+        Boolean primaryOnly = (Boolean) request.getAttribute(PRIMARY_ONLY_ATTRIBUTE);
+        if (primaryOnly == null) {
+            long now = System.currentTimeMillis();
+            boolean write = !SAFE_METHODS.contains(request.getMethod());
+            if (write) {
+                // Set before the response is committed, a failed write only costs a few reads on the primary.
+                Cookie cookie = new Cookie(COOKIE, Long.toString(now + stickyWindow.toMillis()));
+                cookie.setPath("/");
+                cookie.setHttpOnly(true);
+                cookie.setMaxAge((int) stickyWindow.toSeconds());
+                response.addCookie(cookie);
+            }
+            primaryOnly = write || stickyUntil(request) > now;
+            request.setAttribute(PRIMARY_ONLY_ATTRIBUTE, primaryOnly);
+        }
+        ReplicaRoutingDataSource.setPrimaryOnly(primaryOnly);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReplicaRoutingDataSource.setPrimaryOnly(false);
+        }
+    }
+
+    private static long stickyUntil(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
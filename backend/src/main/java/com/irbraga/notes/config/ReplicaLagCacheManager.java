@@ -0,0 +1,143 @@
+package com.irbraga.notes.config;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+/**
+ * Evicts every cache entry a second time once the replicas have caught up with the write that evicted it.
+ *
+ * A read running on a replica right after a write may still see the previous state and cache it again,
+ * where it would stay until it expires. Evicting again after the max replica lag (plus the lag check
+ * interval) drops it.
+ */
+public class ReplicaLagCacheManager implements CacheManager {
+
+    private final CacheManager target;
+    private final long delayMillis;
+    private final Map<String, Cache> caches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("replica-lag-cache-eviction").daemon().factory());
+
+    public ReplicaLagCacheManager(CacheManager target, Duration delay) {
+        this.target = target;
+        this.delayMillis = delay.toMillis();
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache == null) {
+            Cache targetCache = target.getCache(name);
+            if (targetCache == null) {
+                return null;
+            }
+            cache = caches.computeIfAbsent(name, key -> new ReplicaLagCache(targetCache));
+        }
+        return cache;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return target.getCacheNames();
+    }
+
+    private void later(Runnable eviction) {
+        scheduler.schedule(eviction, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A cache whose evictions are repeated after the delay.
+     */
+    public class ReplicaLagCache implements Cache {
+
+        private final Cache target;
+
+        ReplicaLagCache(Cache target) {
+            this.target = target;
+        }
+
+        public Cache getTargetCache() {
+            return target;
+        }
+
+        @Override
+        public String getName() {
+            return target.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return target.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return target.get(key);
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return target.get(key, type);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return target.get(key, valueLoader);
+        }
+
+        @Override
+        public CompletableFuture<?> retrieve(Object key) {
+            return target.retrieve(key);
+        }
+
+        @Override
+        public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+            return target.retrieve(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            target.put(key, value);
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            return target.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void evict(Object key) {
+            target.evict(key);
+            later(() -> target.evict(key));
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            later(() -> target.evict(key));
+            return target.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            target.clear();
+            later(target::clear);
+        }
+
+        @Override
+        public boolean invalidate() {
+            later(target::clear);
+            return target.invalidate();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.irbraga.notes.config;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Connections of the read-only transactions, taken from the replicas in turn.
+ *
+ * The replication lag of every replica is checked every lag check interval; a replica further behind
+ * than the max lag, or that cannot be reached, is left out until it catches up. When no replica is
+ * usable, or the current request must read its own writes (see ReadYourWritesFilter), the connections
+ * come from the primary.
+ *
+ * The choice is made per connection from the state of the calling thread, so work handed to other threads
+ * carries the read-your-writes pin along (see DataSourceConfig#readYourWritesTaskDecorator).
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    // Lag of the last transaction replayed, 0 when the replica has replayed all it received (the primary may be idle) or is not a standby.
+    private static final String LAG_SQL = "SELECT CASE WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE coalesce(extract(epoch FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)::bigint END";
+
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, Duration maxLag) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.maxLagMillis = maxLag.toMillis();
+    }
+
+    /**
+     * Makes the read-only transactions of the current thread use the primary, until cleared.
+     * @param primaryOnly
+     */
+    public static void setPrimaryOnly(boolean primaryOnly) {
+        if (primaryOnly) {
+            PRIMARY_ONLY.set(Boolean.TRUE);
+        } else {
+            PRIMARY_ONLY.remove();
+        }
+    }
+
+    public static boolean isPrimaryOnly() {
+        return PRIMARY_ONLY.get() != null;
+    }
+
+    /**
+     * Lag of each replica in ms, -1 when it cannot be reached.
+     * @return
+     */
+    public Map<String, Long> lags() {
+        Map<String, Long> lags = new LinkedHashMap<>();
+        replicas.forEach(replica -> lags.put(replica.name(), replica.lagMillis));
+        return lags;
+    }
+
+    /**
+     * Takes a connection from the next usable replica, or from the primary when the replica fails.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = choose();
+        if (replica != null) {
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                LOGGER.warn("Replica {} cannot be reached, reading from the primary until it is back.", replica.name(), e);
+                replica.lagMillis = -1;
+            }
+        }
+        return primary.getConnection();
+    }
+
+    /**
+     * The pools have their own credentials.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connections with other credentials are not supported.");
+    }
+
+    /**
+     * Measures the lag of every replica.
+     */
+    @Scheduled(fixedDelayString = "${notes.datasource.replica.lag-check-interval:1000}")
+    public void checkLag() {
+        for (Replica replica : replicas) {
+            long lag;
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery(LAG_SQL)) {
+                result.next();
+                lag = result.getLong(1);
+            } catch (SQLException e) {
+                lag = -1;
+            }
+            boolean wasUsable = replica.isUsable(maxLagMillis);
+            replica.lagMillis = lag;
+            if (wasUsable && !replica.isUsable(maxLagMillis)) {
+                LOGGER.warn("Replica {} left out, lag {} ms.", replica.name(), lag);
+            } else if (!wasUsable && replica.isUsable(maxLagMillis)) {
+                LOGGER.info("Replica {} in use, lag {} ms.", replica.name(), lag);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    /**
+     * The next usable replica in turn, null when the primary must be used.
+     * @return
+     */
+    private Replica choose() {
+        if (isPrimaryOnly()) {
+            return null;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.isUsable(maxLagMillis)) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private static class Replica {
+
+        private final HikariDataSource dataSource;
+        // Unknown until the first check.
+        private volatile long lagMillis = -1;
+
+        Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        String name() {
+            return dataSource.getPoolName();
+        }
+
+        boolean isUsable(long maxLagMillis) {
+            return lagMillis >= 0 && lagMillis <= maxLagMillis;
+        }
+    }
+}
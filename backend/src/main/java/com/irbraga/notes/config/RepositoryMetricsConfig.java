@@ -0,0 +1,82 @@
+package com.irbraga.notes.config;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Number of rows returned by every repository method, as the notes.repository.rows summary.
+ * The time of the calls is the spring.data.repository.invocations timer Spring Boot already records.
+ *
+ * Like that timer it sits inside the repository proxy, so calls answered by the caches are not counted.
+ */
+@Configuration
+public class RepositoryMetricsConfig {
+
+    public static final String ROWS_METRIC = "notes.repository.rows";
+
+    @Bean
+    public static BeanPostProcessor repositoryRowsPostProcessor(ObjectProvider<MeterRegistry> registry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+                    factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                            (proxy, information) -> proxy.addAdvice(new RowsInterceptor(registry, information.getRepositoryInterface()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Records the size of collections, slices and optionals returned.
+     * Streams are not counted, they are consumed after the call returns.
+     */
+    private static class RowsInterceptor implements MethodInterceptor {
+
+        private final ObjectProvider<MeterRegistry> registry;
+        private final String repository;
+        private final Map<Method, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+        RowsInterceptor(ObjectProvider<MeterRegistry> registry, Class<?> repositoryInterface) {
+            this.registry = registry;
+            this.repository = repositoryInterface.getSimpleName();
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            int rows;
+            if (result instanceof Collection<?> collection) {
+                rows = collection.size();
+            } else if (result instanceof Slice<?> slice) {
+                rows = slice.getNumberOfElements();
+            } else if (result instanceof Optional<?> optional) {
+                rows = optional.isPresent() ? 1 : 0;
+            } else {
+                return result;
+            }
+            summaries.computeIfAbsent(invocation.getMethod(), method -> DistributionSummary.builder(ROWS_METRIC)
+                                                                                           .tag("repository", repository)
+                                                                                           .tag("method", method.getName())
+                                                                                           .register(registry.getObject()))
+                     .record(rows);
+            return result;
+        }
+    }
+}
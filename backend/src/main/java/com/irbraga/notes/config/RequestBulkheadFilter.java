@@ -0,0 +1,121 @@
+package com.irbraga.notes.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Bounds the number of requests running at the same time when requests run on virtual threads.
+ *
+ * Every endpoint blocks on JDBC, and without the platform thread pool nothing stops thousands of
+ * virtual threads from queueing on the connection pool and failing with connection timeouts.
+ * Requests wait here for a slot instead, and get a 503 when none frees up in time.
+ *
+ * Asynchronous requests (the NDJSON stream and the CSV export) keep their slot until they
+ * complete, time out or fail, not only until the request thread returns. The live events are left out
+ * on purpose: a subscription lasts up to notes.changes.events.timeout without holding a connection,
+ * a slot each would let a few idle subscribers block every other request.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class RequestBulkheadFilter extends OncePerRequestFilter {
+
+    private static final String LIVE_EVENTS_PATH = "/notes/changes/events";
+
+    private final Semaphore permits;
+    private final Duration acquireTimeout;
+
+    public RequestBulkheadFilter(@Value("${notes.bulkhead.max-concurrent-requests}") int maxConcurrentRequests,
+                                 @Value("${notes.bulkhead.acquire-timeout}") Duration acquireTimeout) {
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        Permit permit = new Permit();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(permit);
+            } else {
+                permit.release();
+            }
+        }
+    }
+
+    /**
+     * Health checks and metrics must answer even when the application is saturated.
+     * The live events hold no connection while they wait for changes.
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator") || request.getRequestURI().equals(LIVE_EVENTS_PATH);
+    }
+
+    /**
+     * The slot of a request, released once whichever way the request ends.
+     */
+    private class Permit implements AsyncListener {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Started again from an async dispatch, listeners must register again.
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -1,29 +1,62 @@
 package com.irbraga.notes.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.irbraga.notes.config.WebConfig;
+import com.irbraga.notes.dto.BulkItemResult;
+import com.irbraga.notes.dto.ChangesDto;
+import com.irbraga.notes.dto.CollectionVersion;
+import com.irbraga.notes.dto.KeysetPage;
+import com.irbraga.notes.dto.NoteCursor;
 import com.irbraga.notes.dto.NoteDto;
+import com.irbraga.notes.dto.NotePatchDto;
+import com.irbraga.notes.dto.NoteReturnObject;
+import com.irbraga.notes.dto.NoteSearchResult;
+import com.irbraga.notes.dto.NoteSummaryList;
+import com.irbraga.notes.dto.NoteSummaryReturnObject;
+import com.irbraga.notes.dto.NoteTagBatchDto;
+import com.irbraga.notes.dto.NoteTagBatchResult;
+import com.irbraga.notes.dto.SearchCursor;
 import com.irbraga.notes.entities.NoteEntity;
-import com.irbraga.notes.entities.TagEntity;
+import com.irbraga.notes.entities.NoteSummaryEntity;
+import com.irbraga.notes.mappers.NotesMapper;
+import com.irbraga.notes.repositories.NoteSummariesRepository;
 import com.irbraga.notes.repositories.NotesRepository;
 import com.irbraga.notes.repositories.TagsRepository;
+import com.irbraga.notes.services.ChangeEventsService;
+import com.irbraga.notes.services.ChangesService;
+import com.irbraga.notes.services.NoteTagsService;
+import com.irbraga.notes.services.NotesAutosaveService;
+import com.irbraga.notes.services.NotesBulkService;
+import com.irbraga.notes.services.NotesStreamingService;
+import com.irbraga.notes.services.TagIndex;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -32,18 +65,43 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
 @Tag(name = "Notes", description = "Endpoints related to Notes.")
 @RestController("Nodes Controller")
-@RequestMapping(path = "/notes", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequestMapping(path = "/notes", produces = {MediaType.APPLICATION_JSON_VALUE, WebConfig.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
 public class NotesController {
 
+    // CSV media type used by the export.
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    // Max number of notes returned by a single page, the tags of a whole page are loaded in one query.
+    private static final int MAX_PAGE_SIZE = NoteEntity.TAGS_BATCH_SIZE;
+
     // Injected repository.
     @Autowired
     private NotesRepository notesRepository;
     @Autowired
+    private NoteSummariesRepository noteSummariesRepository;
+    @Autowired
     private TagsRepository tagsRepository;
+    @Autowired
+    private NotesStreamingService notesStreamingService;
+    @Autowired
+    private NotesBulkService notesBulkService;
+    @Autowired
+    private TagIndex tagIndex;
+    @Autowired
+    private ChangesService changesService;
+    @Autowired
+    private ChangeEventsService changeEventsService;
+    @Autowired
+    private NotesMapper notesMapper;
+    @Autowired
+    private NoteTagsService noteTagsService;
+    @Autowired
+    private NotesAutosaveService notesAutosaveService;
 
     /**
      * Creates a Note.
@@ -56,10 +114,25 @@ public class NotesController {
         @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content)
     })
     @PostMapping(path = "/", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public NoteEntity create(@Valid @RequestBody NoteDto dto) {
-        NoteEntity note = new NoteEntity();
-        BeanUtils.copyProperties(dto, note);
-        return notesRepository.save(note);
+    public NoteReturnObject create(@Valid @RequestBody NoteDto dto) {
+        NoteEntity note = notesRepository.save(notesMapper.toEntity(dto));
+        return notesMapper.toResponse(note);
+    }
+
+    /**
+     * Creates notes in bulk from newline delimited JSON, one note per line.
+     * @param input
+     * @param response
+     * @throws IOException
+     */
+    @Operation(description = "Creates notes in bulk. The body has one note per line, tags are given by name and created when missing. "
+                           + "The response has one result per line, with the created note ID or the validation errors.",
+               summary = "Creates notes in bulk.")
+    @ApiResponse(responseCode = "200", description = "Success.", content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = BulkItemResult.class)))
+    @PostMapping(path = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void bulk(InputStream input, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        notesBulkService.importNdjson(input, response.getOutputStream());
     }
 
     /**
@@ -72,18 +145,66 @@ public class NotesController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Success.", content = {@Content(schema = @Schema(implementation = NoteReturnObject.class))}),
         @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content),
-        @ApiResponse(responseCode = "404", description = "Not found.", content = @Content)
+        @ApiResponse(responseCode = "404", description = "Not found.", content = @Content),
+        @ApiResponse(responseCode = "412", description = "The note was changed since the version in If-Match.", content = @Content)
     })
     @PutMapping(path = "/{uuid}", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<NoteEntity> update(@PathVariable UUID uuid, @Valid NoteDto dto) {
+    public ResponseEntity<NoteReturnObject> update(@PathVariable UUID uuid, @Valid @RequestBody NoteDto dto, WebRequest request) {
+        // The note is replaced as a whole, its autosaved changes are written first so the version checks see them.
+        notesAutosaveService.flush(uuid);
         Optional<NoteEntity> tag = notesRepository.findById(uuid);
         if (tag.isPresent()) {
-            BeanUtils.copyProperties(dto, tag.get());
-            return ResponseEntity.status(HttpStatus.OK).body(notesRepository.save(tag.get()));
+            // If-Match ignores the W/ of the ETags, If-Unmodified-Since only counts without it.
+            String ifMatch = request.getHeader(HttpHeaders.IF_MATCH);
+            if (ifMatch != null && !CollectionVersion.matches(ifMatch, tag.get().getUpdatedAt())) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(null);
+            }
+            if (ifMatch == null && request.checkNotModified(tag.get().getUpdatedAt().getTime())) {
+                // The response status is already 412.
+                return null;
+            }
+            notesMapper.update(dto, tag.get());
+            NoteEntity saved = notesRepository.save(tag.get());
+            Date updatedAt = notesRepository.findUpdatedAtById(uuid).orElseThrow();
+            return ResponseEntity.status(HttpStatus.OK)
+                                 .eTag(CollectionVersion.etag(updatedAt))
+                                 .lastModified(updatedAt.getTime())
+                                 .body(notesMapper.toResponse(saved));
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
     }
 
+    /**
+     * Autosaves changes of a note.
+     * @param uuid
+     * @param dto
+     * @return
+     */
+    @Operation(description = "Changes the given fields of a note, the others are left unchanged. Meant for autosave: changes are merged "
+                           + "in memory and written shortly after, the response and the reads already have them. "
+                           + "The version must be the one of the note the changes were made on, the response has the new one.",
+               summary = "Autosaves changes of a note.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Accepted.", content = {@Content(schema = @Schema(implementation = NoteReturnObject.class))}),
+        @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content),
+        @ApiResponse(responseCode = "404", description = "Not found.", content = @Content),
+        @ApiResponse(responseCode = "409", description = "The note was changed since the given version.", content = @Content)
+    })
+    @PatchMapping(path = "/{uuid}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<NoteReturnObject> patch(@PathVariable UUID uuid, @Valid @RequestBody NotePatchDto dto) {
+        Optional<NoteEntity> note = notesRepository.findCachedById(uuid);
+        if (note.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+        try {
+            return notesAutosaveService.patch(notesMapper.toResponse(note.get()), dto)
+                                       .map(patched -> ResponseEntity.status(HttpStatus.ACCEPTED).body(patched))
+                                       .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).body(null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
     /**
      * Retreives a note by it's ID.
      * @param uuid
@@ -92,35 +213,277 @@ public class NotesController {
     @Operation(description = "Retreives a note by it's ID.", summary = "Retreives a note by it's ID.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Success.", content = {@Content(schema = @Schema(implementation = NoteReturnObject.class))}),
+        @ApiResponse(responseCode = "304", description = "Not modified since the version in If-None-Match.", content = @Content),
         @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content)
     })
     @GetMapping(path = "/{uuid}")
-    public Optional<NoteEntity> get(@PathVariable UUID uuid) {
-        return notesRepository.findById(uuid);
+    public Optional<NoteReturnObject> get(@PathVariable UUID uuid, WebRequest request) {
+        Optional<Date> updatedAt = notesRepository.findUpdatedAtById(uuid);
+        // The stored version does not cover autosaved changes not written yet.
+        if (updatedAt.isPresent() && !notesAutosaveService.hasPending(uuid)
+                && request.checkNotModified(CollectionVersion.etag(updatedAt.get()), updatedAt.get().getTime())) {
+            return null;
+        }
+        Optional<NoteEntity> note = notesRepository.findCachedById(uuid);
+        // The cache is per instance, the body must be the version of the ETag.
+        if (!note.map(NoteEntity::getUpdatedAt).map(Date::getTime).equals(updatedAt.map(Date::getTime))) {
+            note = notesRepository.refreshCachedById(uuid);
+        }
+        return note.map(notesMapper::toResponse).map(notesAutosaveService::overlay);
     }
     
     /**
      * Retreives all notes.
+     * @param tagDictionary
+     * @param request
      * @return
      */
-    @Operation(description = "Retreives all notes.", summary = "Retreives all notes from database.")
-    @ApiResponse(responseCode = "200", description = "Success.", content = @Content(array = @ArraySchema(schema = @Schema(implementation = NoteReturnObject.class))))
+    @Operation(description = "Retreives all notes, with an excerpt of their body. "
+                           + "With tagDictionary the notes reference their tags by ID and every tag is sent once (NoteSummaryList).",
+               summary = "Retreives all notes from database.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content(array = @ArraySchema(schema = @Schema(implementation = NoteSummaryReturnObject.class)))),
+        @ApiResponse(responseCode = "304", description = "Not modified since the version in If-None-Match.", content = @Content)
+    })
     @GetMapping(path = "/")
-    public List<NoteEntity> list() {
-        return notesRepository.findAll();
+    public Object list(@RequestParam(defaultValue = "false") boolean tagDictionary, WebRequest request) {
+        if (notModified(request, notesAutosaveService.pendingIds())) {
+            return null;
+        }
+        List<NoteSummaryReturnObject> notes = notesAutosaveService.overlaySummaries(notesMapper.toSummary(noteSummariesRepository.findAll()));
+        return tagDictionary ? NoteSummaryList.of(notes, null) : notes;
+    }
+
+    /**
+     * Retreives a page of notes, ordered by creation date.
+     * @param cursor
+     * @param size
+     * @param tagDictionary
+     * @return
+     */
+    @Operation(description = "Retreives a page of notes ordered by creation date, with an excerpt of their body. Use the returned nextCursor to get the next page. "
+                           + "With tagDictionary the notes reference their tags by ID and every tag is sent once (NoteSummaryList).",
+               summary = "Retreives a page of notes.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content),
+        @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content)
+    })
+    @GetMapping(path = "/paginate")
+    public ResponseEntity<?> paginate(@RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "50") int size,
+                                      @RequestParam(defaultValue = "false") boolean tagDictionary) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        List<NoteSummaryEntity> notes;
+        if (cursor == null || cursor.isBlank()) {
+            notes = noteSummariesRepository.findFirstPage(size);
+        } else {
+            try {
+                NoteCursor after = NoteCursor.decode(cursor);
+                notes = noteSummariesRepository.findPageAfter(after.createdAtTimestamp(), after.id(), size);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+            }
+        }
+        String nextCursor = null;
+        if (notes.size() == size) {
+            NoteSummaryEntity last = notes.get(notes.size() - 1);
+            nextCursor = NoteCursor.of(last.getCreatedAt(), last.getId()).encode();
+        }
+        List<NoteSummaryReturnObject> items = notesAutosaveService.overlaySummaries(notesMapper.toSummary(notes));
+        if (tagDictionary) {
+            return ResponseEntity.status(HttpStatus.OK).body(NoteSummaryList.of(items, nextCursor));
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(new KeysetPage<>(items, nextCursor));
+    }
+
+    /**
+     * Full text search over the title and the body of the notes.
+     * @param q
+     * @param cursor
+     * @param size
+     * @return
+     */
+    @Operation(description = "Searches notes by title and body, best matches first. Use the returned nextCursor to get the next page.", summary = "Searches notes.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content),
+        @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content)
+    })
+    @GetMapping(path = "/search")
+    public ResponseEntity<KeysetPage<NoteSearchResult>> search(@RequestParam String q,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(defaultValue = "20") int size) {
+        if (q.isBlank() || size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        List<NoteSearchResult> results;
+        if (cursor == null || cursor.isBlank()) {
+            results = notesRepository.search(q, size);
+        } else {
+            try {
+                SearchCursor after = SearchCursor.decode(cursor);
+                results = notesRepository.searchAfter(q, after.rank(), after.id(), size);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+            }
+        }
+        String nextCursor = null;
+        if (results.size() == size) {
+            nextCursor = SearchCursor.of(results.get(results.size() - 1)).encode();
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(new KeysetPage<>(results, nextCursor));
+    }
+
+    /**
+     * Streams all notes as newline delimited JSON.
+     * @return
+     */
+    @Operation(description = "Streams all notes as newline delimited JSON, one note per line.", summary = "Streams all notes.")
+    @ApiResponse(responseCode = "200", description = "Success.", content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, schema = @Schema(implementation = NoteReturnObject.class)))
+    @GetMapping(path = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return ResponseEntity.status(HttpStatus.OK)
+                             .contentType(MediaType.APPLICATION_NDJSON)
+                             .body(notesStreamingService::writeNdjson);
+    }
+
+    /**
+     * Exports all notes and their tag names as CSV.
+     * @return
+     */
+    @Operation(description = "Exports all notes and the names of their tags as CSV.", summary = "Exports all notes.")
+    @ApiResponse(responseCode = "200", description = "Success.", content = @Content(mediaType = TEXT_CSV_VALUE))
+    @GetMapping(path = "/export", produces = TEXT_CSV_VALUE)
+    public ResponseEntity<StreamingResponseBody> export() {
+        return ResponseEntity.status(HttpStatus.OK)
+                             .contentType(MediaType.parseMediaType(TEXT_CSV_VALUE))
+                             .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"notes.csv\"")
+                             .body(notesStreamingService::writeCsv);
     }
 
     /**
      * Retreives all notes with a specific tag ID.
      * @param uuid
-     * @param pageInfo
+     * @param tagDictionary
+     * @param request
      * @return
      */
-    @Operation(description = "Retreives all notes with a specific tag ID.", summary = "Retreives all notes with a specific tag ID.")
-    @ApiResponse(responseCode = "200", description = "Success.", content = @Content(array = @ArraySchema(schema = @Schema(implementation = NoteReturnObject.class))))
+    @Operation(description = "Retreives all notes with a specific tag ID, with an excerpt of their body. "
+                           + "With tagDictionary the notes reference their tags by ID and every tag is sent once (NoteSummaryList).",
+               summary = "Retreives all notes with a specific tag ID.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content(array = @ArraySchema(schema = @Schema(implementation = NoteSummaryReturnObject.class)))),
+        @ApiResponse(responseCode = "304", description = "Not modified since the version in If-None-Match.", content = @Content)
+    })
     @GetMapping(path = "/tag/{uuid}")
-    public List<NoteEntity> listByTagId(@PathVariable UUID uuid) {
-        return notesRepository.findByTagsId(uuid);
+    public Object listByTagId(@PathVariable UUID uuid, @RequestParam(defaultValue = "false") boolean tagDictionary, WebRequest request) {
+        Set<UUID> pending = notesAutosaveService.pendingIds();
+        if (notModified(request, pending.isEmpty() ? pending : notesRepository.findIdsByTagIdAndIdIn(uuid, pending))) {
+            return null;
+        }
+        List<NoteSummaryReturnObject> notes = notesAutosaveService.overlaySummaries(notesMapper.toSummary(noteSummariesRepository.findByTagsId(uuid)));
+        return tagDictionary ? NoteSummaryList.of(notes, null) : notes;
+    }
+
+    /**
+     * Retreives the changes of notes and tags made after a sync token.
+     * @param since
+     * @param limit
+     * @return
+     */
+    @Operation(description = "Retreives the notes and tags created, updated or deleted after the 'since' token, and the token to use next. "
+                           + "Without 'since' only the current token is returned: take it before downloading all notes, then sync from it.",
+               summary = "Retreives the changes since a sync token.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content(schema = @Schema(implementation = ChangesDto.class))),
+        @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content),
+        @ApiResponse(responseCode = "410", description = "The changes after the token were pruned, download all notes again.", content = @Content)
+    })
+    @GetMapping(path = "/changes")
+    public ResponseEntity<ChangesDto> changes(@RequestParam(required = false) String since,
+                                              @RequestParam(defaultValue = "500") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        if (since == null || since.isBlank()) {
+            return ResponseEntity.status(HttpStatus.OK).body(new ChangesDto(List.of(), List.of(), List.of(), changesService.currentToken(), false));
+        }
+        long token;
+        try {
+            token = Long.parseLong(since);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        if (token < 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        return changesService.changesSince(token, limit)
+                             .map(changes -> ResponseEntity.status(HttpStatus.OK).body(changes))
+                             .orElseGet(() -> ResponseEntity.status(HttpStatus.GONE).body(null));
+    }
+
+    /**
+     * Pushes the changes of notes, tags and tag links as Server-Sent Events.
+     * @param lastEventId
+     * @return
+     */
+    @Operation(description = "Pushes the changes of notes, tags and tag links as Server-Sent Events. The first event is 'ready', its data is the sync token "
+                           + "the changes are pushed from; each 'change' event has the change feed ID, the type, IDs and operation of a change, "
+                           + "and a sync token as event ID. "
+                           + "A client too slow to keep up, or reconnecting after changes were made, gets a 'resync' event with a sync token instead: "
+                           + "it catches up from it with /notes/changes, then subscribes again.",
+               summary = "Pushes the changes as they happen.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)),
+        @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content),
+        @ApiResponse(responseCode = "503", description = "The changes are not received at the moment, retry later.", content = @Content)
+    })
+    @GetMapping(path = "/changes/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> changeEvents(@RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        Long lastId = null;
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                lastId = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+            }
+        }
+        if (!changeEventsService.isListening()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").body(null);
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(changeEventsService.subscribe(lastId));
+    }
+
+    /**
+     * Retreives the notes matching a boolean filter over their tags.
+     * @param all
+     * @param any
+     * @param none
+     * @param limit
+     * @return
+     */
+    @Operation(description = "Retreives the notes having all the tags in 'all', at least one of the tags in 'any' and none of the tags in 'none', with an excerpt of their body.", summary = "Retreives notes filtered by tags.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content(array = @ArraySchema(schema = @Schema(implementation = NoteSummaryReturnObject.class)))),
+        @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content)
+    })
+    @GetMapping(path = "/tags")
+    public ResponseEntity<List<NoteSummaryReturnObject>> listByTags(@RequestParam(defaultValue = "") Set<UUID> all,
+                                                                    @RequestParam(defaultValue = "") Set<UUID> any,
+                                                                    @RequestParam(defaultValue = "") Set<UUID> none,
+                                                                    @RequestParam(defaultValue = "100") int limit) {
+        if ((all.isEmpty() && any.isEmpty() && none.isEmpty()) || limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        Optional<List<UUID>> ids = tagIndex.query(all, any, none, limit);
+        if (ids.isPresent()) {
+            return ResponseEntity.status(HttpStatus.OK).body(ids.get().isEmpty() ? List.of() : notesAutosaveService.overlaySummaries(notesMapper.toSummary(noteSummariesRepository.findByIdIn(ids.get()))));
+        }
+        // The index is still warming up.
+        return ResponseEntity.status(HttpStatus.OK).body(notesAutosaveService.overlaySummaries(notesMapper.toSummary(noteSummariesRepository.findByTagFilter(all.toArray(UUID[]::new), all.size(),
+                                                                                                                                                           any.toArray(UUID[]::new), none.toArray(UUID[]::new),
+                                                                                                                                                           limit))));
     }
 
     /**
@@ -137,6 +500,7 @@ public class NotesController {
     public ResponseEntity<?> delete(@PathVariable UUID uuid) {
         Optional<NoteEntity> note = notesRepository.findById(uuid);
         if (note.isPresent()) {
+            notesAutosaveService.discard(uuid);
             notesRepository.deleteById(uuid);
             return ResponseEntity.status(HttpStatus.OK).body(null);
         }
@@ -149,18 +513,14 @@ public class NotesController {
         @ApiResponse(responseCode = "404", description = "Not found.", content = @Content)
     })
     @PutMapping(path = "/{uuid}/tag/{tagUuid}")
-    public ResponseEntity<NoteEntity> addTag(@PathVariable UUID uuid, @PathVariable UUID tagUuid) {
-        Optional<NoteEntity> note = notesRepository.findById(uuid);
-        Optional<TagEntity> tag = tagsRepository.findById(tagUuid);
-
-        if (note.isPresent() && tag.isPresent()) {
-            if (!note.get().getTags().contains(tag.get())) {
-                note.get().getTags().add(tag.get());
-                return ResponseEntity.status(HttpStatus.OK).body(notesRepository.save(note.get()));
-            }
-            return ResponseEntity.status(HttpStatus.OK).body(note.get());
+    public ResponseEntity<NoteReturnObject> addTag(@PathVariable UUID uuid, @PathVariable UUID tagUuid) {
+        if (tagsRepository.findCachedById(tagUuid).isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        noteTagsService.add(uuid, tagUuid);
+        return notesRepository.findCachedById(uuid)
+                              .map(note -> ResponseEntity.status(HttpStatus.OK).body(notesAutosaveService.overlay(notesMapper.toResponse(note))))
+                              .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(null));
     }
 
     @Operation(description = "Remove a tag from a note.", summary = "Remove a tag from a note.")
@@ -169,22 +529,47 @@ public class NotesController {
         @ApiResponse(responseCode = "200", description = "Success.", content = {@Content(schema = @Schema(implementation = NoteReturnObject.class))}),
         @ApiResponse(responseCode = "404", description = "Not found.", content = @Content)
     })
-    public ResponseEntity<NoteEntity> removeTag(@PathVariable UUID uuid, @PathVariable UUID tagUuid) {
-        Optional<NoteEntity> note = notesRepository.findById(uuid);
-        Optional<TagEntity> tag = tagsRepository.findById(tagUuid);
-
-        if (note.isPresent() && tag.isPresent()) {
-            if (note.get().getTags().contains(tag.get())) {
-                note.get().getTags().remove(tag.get());
-                return ResponseEntity.status(HttpStatus.OK).body(notesRepository.save(note.get()));
-            }
-            return ResponseEntity.status(HttpStatus.OK).body(note.get());
+    public ResponseEntity<NoteReturnObject> removeTag(@PathVariable UUID uuid, @PathVariable UUID tagUuid) {
+        if (tagsRepository.findCachedById(tagUuid).isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        noteTagsService.remove(uuid, tagUuid);
+        return notesRepository.findCachedById(uuid)
+                              .map(note -> ResponseEntity.status(HttpStatus.OK).body(notesAutosaveService.overlay(notesMapper.toResponse(note))))
+                              .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(null));
+    }
+
+    /**
+     * Adds and removes tags of many notes at once.
+     * @param dto
+     * @return
+     */
+    @Operation(description = "Adds and removes tags of many notes in one transaction, the additions first. "
+                           + "Pairs already in the wanted state, or whose note or tag does not exist, are skipped.",
+               summary = "Adds and removes tags of many notes.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content(schema = @Schema(implementation = NoteTagBatchResult.class))),
+        @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content)
+    })
+    @PostMapping(path = "/tags/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public NoteTagBatchResult tagBatch(@Valid @RequestBody NoteTagBatchDto dto) {
+        return noteTagsService.apply(dto.addOrEmpty(), dto.removeOrEmpty());
     }
-}
 
-/**
- * Record class to help document the services in swagger ui.
- */
-record NoteReturnObject(UUID id, String title, String body, Date createdAt, Date updatedAt, List<TagReturnObject> tags) {}
+    /**
+     * Checks If-None-Match / If-Modified-Since against the version of the notes and tags tables.
+     * Notes embed their tags, so a tag change is a change of the notes lists too.
+     * Autosaved changes not written yet are not covered by the versions, the version of the ones
+     * of the notes in the list is added.
+     * @param request
+     * @param pendingIds IDs of the notes in the list having autosaved changes not written yet.
+     * @return true when the response status is already set to 304.
+     */
+    private boolean notModified(WebRequest request, Collection<UUID> pendingIds) {
+        CollectionVersion pending = notesAutosaveService.pendingVersion(pendingIds);
+        CollectionVersion notes = notesRepository.findVersion();
+        CollectionVersion tags = tagsRepository.findVersion();
+        return request.checkNotModified(CollectionVersion.etag(notes.token("notes"), tags.token("tags"), pending.token("pending")),
+                                        CollectionVersion.lastModified(notes, tags, pending));
+    }
+}
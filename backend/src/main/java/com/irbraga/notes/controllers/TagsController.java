@@ -8,12 +8,13 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -24,11 +25,22 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.irbraga.notes.config.WebConfig;
+import com.irbraga.notes.dto.CollectionVersion;
+import com.irbraga.notes.dto.KeysetPage;
+import com.irbraga.notes.dto.TagCountReturnObject;
+import com.irbraga.notes.dto.TagCursor;
 import com.irbraga.notes.dto.TagDto;
+import com.irbraga.notes.dto.TagReturnObject;
+import com.irbraga.notes.dto.TagSuggestion;
 import com.irbraga.notes.entities.TagEntity;
+import com.irbraga.notes.mappers.TagsMapper;
 import com.irbraga.notes.repositories.TagsRepository;
+import com.irbraga.notes.services.TagSuggestIndex;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -42,12 +54,20 @@ import jakarta.validation.Valid;
 
 @Tag(name = "Tags", description = "Endpoints related to Tags.")
 @RestController("Tags Controller")
-@RequestMapping(path = "/tags", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequestMapping(path = "/tags", produces = {MediaType.APPLICATION_JSON_VALUE, WebConfig.APPLICATION_SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
 public class TagsController {
 
+    private static final int MAX_SUGGESTIONS = 50;
+    // Max number of tags returned by a single page of the keyset pagination, or by the most used tags.
+    private static final int MAX_PAGE_SIZE = 100;
+
     // Injected repository.
     @Autowired
     private TagsRepository tagsRepository;
+    @Autowired
+    private TagSuggestIndex tagSuggestIndex;
+    @Autowired
+    private TagsMapper tagsMapper;
 
     /**
      * Creates a Tag.
@@ -60,10 +80,10 @@ public class TagsController {
         @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content)
     })
     @PostMapping(path = "/", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<TagEntity> create(@Valid @RequestBody TagDto dto) {
-        TagEntity tag = new TagEntity();
-        BeanUtils.copyProperties(dto, tag);
-        return ResponseEntity.status(HttpStatus.CREATED).body(tagsRepository.save(tag));
+    public ResponseEntity<TagReturnObject> create(@Valid @RequestBody TagDto dto) {
+        TagEntity tag = tagsRepository.save(tagsMapper.toEntity(dto));
+        tagSuggestIndex.put(tag.getId(), tag.getName());
+        return ResponseEntity.status(HttpStatus.CREATED).body(tagsMapper.toResponse(tag));
     }
     
     /**
@@ -76,14 +96,30 @@ public class TagsController {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Success.", content = {@Content(schema = @Schema(implementation = TagReturnObject.class))}),
         @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content),
-        @ApiResponse(responseCode = "404", description = "Not found.", content = @Content)
+        @ApiResponse(responseCode = "404", description = "Not found.", content = @Content),
+        @ApiResponse(responseCode = "412", description = "The tag was changed since the version in If-Match.", content = @Content)
     })
     @PutMapping(path = "/{uuid}", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<TagEntity> update(@PathVariable UUID uuid, @Valid @RequestBody TagDto dto) {
+    public ResponseEntity<TagReturnObject> update(@PathVariable UUID uuid, @Valid @RequestBody TagDto dto, WebRequest request) {
         Optional<TagEntity> tag = tagsRepository.findById(uuid);
         if (tag.isPresent()) {
-            BeanUtils.copyProperties(dto, tag.get());
-            return ResponseEntity.status(HttpStatus.OK).body(tagsRepository.save(tag.get()));
+            // If-Match ignores the W/ of the ETags, If-Unmodified-Since only counts without it.
+            String ifMatch = request.getHeader(HttpHeaders.IF_MATCH);
+            if (ifMatch != null && !CollectionVersion.matches(ifMatch, tag.get().getUpdatedAt())) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(null);
+            }
+            if (ifMatch == null && request.checkNotModified(tag.get().getUpdatedAt().getTime())) {
+                // The response status is already 412.
+                return null;
+            }
+            tagsMapper.update(dto, tag.get());
+            TagEntity saved = tagsRepository.save(tag.get());
+            tagSuggestIndex.put(uuid, saved.getName());
+            Date updatedAt = tagsRepository.findUpdatedAtById(uuid).orElseThrow();
+            return ResponseEntity.status(HttpStatus.OK)
+                                 .eTag(CollectionVersion.etag(updatedAt))
+                                 .lastModified(updatedAt.getTime())
+                                 .body(tagsMapper.toResponse(saved));
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
     }
@@ -96,8 +132,64 @@ public class TagsController {
     @Operation(description = "Retreives a page of tags.", summary = "Retreives a page of tags.")
     @ApiResponse(responseCode = "200", description = "Success.", content = @Content)
     @GetMapping(path = "/paginate")
-    public Page<TagEntity> paginate(@PageableDefault(page = 0, sort = {"name"}, direction = Sort.Direction.ASC, size = 10) Pageable pageInfo) {
-        return tagsRepository.findAll(pageInfo);
+    public Page<TagReturnObject> paginate(@PageableDefault(page = 0, sort = {"name"}, direction = Sort.Direction.ASC, size = 10) Pageable pageInfo) {
+        return tagsRepository.findAll(pageInfo).map(tagsMapper::toResponse);
+    }
+
+    /**
+     * Retreives a slice of tags ordered by name, with their note counts, without counting all the tags.
+     * @param cursor
+     * @param size
+     * @return
+     */
+    @Operation(description = "Retreives a slice of tags ordered by name, with the number of notes of each. Use the returned nextCursor to get the next slice, "
+                           + "unlike /tags/paginate no total is computed and deep slices cost the same as the first.",
+               summary = "Retreives a slice of tags.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content),
+        @ApiResponse(responseCode = "400", description = "Bad request.", content = @Content)
+    })
+    @GetMapping(path = "/slice")
+    public ResponseEntity<KeysetPage<TagCountReturnObject>> slice(@RequestParam(required = false) String cursor,
+                                                                  @RequestParam(defaultValue = "50") int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        // One more tag than asked tells whether there is a next slice.
+        List<TagCountReturnObject> tags;
+        if (cursor == null || cursor.isBlank()) {
+            tags = tagsRepository.findFirstPage(Limit.of(size + 1));
+        } else {
+            try {
+                tags = tagsRepository.findPageAfter(TagCursor.decode(cursor).name(), Limit.of(size + 1));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+            }
+        }
+        String nextCursor = null;
+        if (tags.size() > size) {
+            tags = tags.subList(0, size);
+            nextCursor = new TagCursor(tags.get(size - 1).name()).encode();
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(new KeysetPage<>(tags, nextCursor));
+    }
+
+    /**
+     * Most used tags.
+     * @param limit
+     * @return
+     */
+    @Operation(description = "Retreives the tags used by the most notes, from the note counts kept up to date by the database.", summary = "Retreives the most used tags.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content(array = @ArraySchema(schema = @Schema(implementation = TagCountReturnObject.class)))),
+        @ApiResponse(responseCode = "400", description = "Limit out of range.", content = @Content)
+    })
+    @GetMapping(path = "/top")
+    public ResponseEntity<List<TagCountReturnObject>> top(@RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        return ResponseEntity.status(HttpStatus.OK).body(tagsRepository.findTop(Limit.of(limit)));
     }
 
     /**
@@ -105,10 +197,39 @@ public class TagsController {
      * @return
      */
     @Operation(description = "Retreives all tags.", summary = "Retreives all tags.")
-    @ApiResponse(responseCode = "200", description = "Success.", content = @Content(array = @ArraySchema(schema = @Schema(implementation = TagReturnObject.class))))
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content(array = @ArraySchema(schema = @Schema(implementation = TagReturnObject.class)))),
+        @ApiResponse(responseCode = "304", description = "Not modified since the version in If-None-Match.", content = @Content)
+    })
     @GetMapping(path = "/")
-    public List<TagEntity> list() {
-        return tagsRepository.findAll();
+    public List<TagReturnObject> list(WebRequest request) {
+        CollectionVersion tags = tagsRepository.findVersion();
+        if (request.checkNotModified(CollectionVersion.etag(tags.token("tags")), CollectionVersion.lastModified(tags))) {
+            return null;
+        }
+        return tagsMapper.toResponse(tagsRepository.findAllCached());
+    }
+
+    /**
+     * Suggests tags whose name starts with a prefix, the most used first.
+     * @param prefix
+     * @param limit
+     * @return
+     */
+    @Operation(description = "Suggests tags whose name starts with a prefix, ignoring case, ordered by number of notes.", summary = "Suggests tags by name prefix.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content(array = @ArraySchema(schema = @Schema(implementation = TagSuggestion.class)))),
+        @ApiResponse(responseCode = "400", description = "Limit out of range.", content = @Content)
+    })
+    @GetMapping(path = "/suggest")
+    public ResponseEntity<List<TagSuggestion>> suggest(@RequestParam(defaultValue = "") String prefix, @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        // Served by SQL until the index is built.
+        List<TagSuggestion> suggestions = tagSuggestIndex.suggest(prefix, limit)
+                .orElseGet(() -> tagsRepository.findSuggestions(likePrefix(prefix), Limit.of(limit)));
+        return ResponseEntity.status(HttpStatus.OK).body(suggestions);
     }
 
     /**
@@ -117,10 +238,22 @@ public class TagsController {
      * @return
      */
     @Operation(description = "Retreives a tag by it's ID.", summary = "Retreives a tag by it's ID.")
-    @ApiResponse(responseCode = "200", description = "Success.", content = @Content(schema = @Schema(implementation = TagReturnObject.class)))
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Success.", content = @Content(schema = @Schema(implementation = TagReturnObject.class))),
+        @ApiResponse(responseCode = "304", description = "Not modified since the version in If-None-Match.", content = @Content)
+    })
     @GetMapping(path = "/{uuid}")
-    public Optional<TagEntity> get(@PathVariable UUID uuid) {
-        return tagsRepository.findById(uuid);
+    public Optional<TagReturnObject> get(@PathVariable UUID uuid, WebRequest request) {
+        Optional<Date> updatedAt = tagsRepository.findUpdatedAtById(uuid);
+        if (updatedAt.isPresent() && request.checkNotModified(CollectionVersion.etag(updatedAt.get()), updatedAt.get().getTime())) {
+            return null;
+        }
+        Optional<TagEntity> tag = tagsRepository.findCachedById(uuid);
+        // The cache is per instance, the body must be the version of the ETag.
+        if (!tag.map(TagEntity::getUpdatedAt).map(Date::getTime).equals(updatedAt.map(Date::getTime))) {
+            tag = tagsRepository.refreshCachedById(uuid);
+        }
+        return tag.map(tagsMapper::toResponse);
     }
 
     /**
@@ -138,13 +271,18 @@ public class TagsController {
         Optional<TagEntity> note = tagsRepository.findById(uuid);
         if (note.isPresent()) {
             tagsRepository.deleteById(uuid);
+            tagSuggestIndex.remove(uuid);
             return ResponseEntity.status(HttpStatus.OK).body(null);
         }
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
     }
-}
 
-/**
- * Record class to help document the services in swagger ui.
- */
-record TagReturnObject(UUID id, String name, Date createdAt, Date updatedAt) {}
+    /**
+     * LIKE pattern matching the normalized names starting with a prefix.
+     * @param prefix
+     * @return
+     */
+    private static String likePrefix(String prefix) {
+        return TagSuggestIndex.normalizePrefix(prefix).replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+}
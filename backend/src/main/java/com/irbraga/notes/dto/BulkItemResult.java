@@ -0,0 +1,25 @@
+package com.irbraga.notes.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Result of one line of a bulk import.
+ * id is only set when the note was created.
+ */
+public record BulkItemResult(long line, Status status, UUID id, List<String> errors) {
+
+    public enum Status { CREATED, INVALID, FAILED }
+
+    public static BulkItemResult created(long line, UUID id) {
+        return new BulkItemResult(line, Status.CREATED, id, List.of());
+    }
+
+    public static BulkItemResult invalid(long line, List<String> errors) {
+        return new BulkItemResult(line, Status.INVALID, null, errors);
+    }
+
+    public static BulkItemResult failed(long line, String error) {
+        return new BulkItemResult(line, Status.FAILED, null, List.of(error));
+    }
+}
@@ -0,0 +1,12 @@
+package com.irbraga.notes.dto;
+
+import java.util.UUID;
+
+/**
+ * A change pushed by the live events endpoint, as published by the change log trigger.
+ * The ID is the ID of the change in the change feed. For a tag link (type note_tag)
+ * entityId is the note ID and relatedId the tag ID.
+ */
+public record ChangeEvent(long id, String type, UUID entityId, UUID relatedId, String operation) {
+
+}
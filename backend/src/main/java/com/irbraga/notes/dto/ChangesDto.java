@@ -0,0 +1,15 @@
+package com.irbraga.notes.dto;
+
+import java.util.List;
+
+/**
+ * A page of the change feed: the current state of the notes and tags created or updated,
+ * and the tombstones of what was deleted. Clients keep nextToken to ask for the following changes.
+ */
+public record ChangesDto(List<NoteReturnObject> notes,
+                         List<TagReturnObject> tags,
+                         List<Tombstone> deleted,
+                         String nextToken,
+                         boolean hasMore) {
+    
+}
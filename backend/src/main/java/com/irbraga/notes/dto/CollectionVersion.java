@@ -0,0 +1,93 @@
+package com.irbraga.notes.dto;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Objects;
+
+/**
+ * Version of a whole table, computed from its number of rows and its last update.
+ * Used to build the ETag and Last-Modified headers of the list endpoints.
+ */
+public record CollectionVersion(long count, Date lastUpdated) {
+
+    /**
+     * Part of an ETag identifying this version.
+     * @param name
+     * @return
+     */
+    public String token(String name) {
+        return name + "-" + this.count + "-" + toMicros(this.lastUpdated);
+    }
+
+    /**
+     * Builds a weak ETag from the tokens of one or more versions.
+     * Lists are only validated by If-None-Match, which compares weakly, and a strong ETag would
+     * stop the server from compressing them, the bytes differ per Content-Encoding.
+     * @param tokens
+     * @return
+     */
+    public static String etag(String... tokens) {
+        return "W/\"" + String.join("-", tokens) + "\"";
+    }
+
+    /**
+     * Weak ETag of a single entity, weak for the same reason as the lists: the note bodies are the largest responses.
+     * @param updatedAt
+     * @return
+     */
+    public static String etag(Date updatedAt) {
+        return "W/\"" + toMicros(updatedAt) + "\"";
+    }
+
+    /**
+     * Checks an If-Match header against the version of an entity.
+     * If-Match compares strongly and never matches a weak ETag, but the version is the same whatever
+     * the Content-Encoding, so the ETags are compared without their W/ prefix.
+     * @param ifMatch
+     * @param updatedAt
+     * @return true when "*" or one of the ETags of the header is the one of the entity.
+     */
+    public static boolean matches(String ifMatch, Date updatedAt) {
+        String etag = opaque(etag(updatedAt));
+        for (String requested : ifMatch.split(",")) {
+            String trimmed = requested.trim();
+            if ("*".equals(trimmed) || opaque(trimmed).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Last-Modified value of one or more versions, -1 when empty.
+     * @param versions
+     * @return
+     */
+    public static long lastModified(CollectionVersion... versions) {
+        return Arrays.stream(versions)
+                     .map(CollectionVersion::lastUpdated)
+                     .filter(Objects::nonNull)
+                     .mapToLong(Date::getTime)
+                     .max()
+                     .orElse(-1);
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * Timestamps keep the microseconds stored by PostgreSQL, so two updates within the same millisecond differ.
+     * @param date
+     * @return
+     */
+    private static long toMicros(Date date) {
+        if (date == null) {
+            return 0;
+        }
+        Instant instant = date instanceof Timestamp timestamp ? timestamp.toInstant() : date.toInstant();
+        return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1_000;
+    }
+}
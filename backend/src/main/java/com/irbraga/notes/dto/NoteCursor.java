@@ -0,0 +1,58 @@
+package com.irbraga.notes.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Position of a note in the keyset pagination (created_at, note_id).
+ * Clients receive it as an opaque token.
+ */
+public record NoteCursor(Instant createdAt, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Builds the cursor pointing at the given note.
+     * Keeps the sub-millisecond precision when Hibernate hands back a java.sql.Timestamp.
+     * @param createdAt
+     * @param id
+     * @return
+     */
+    public static NoteCursor of(Date createdAt, UUID id) {
+        Instant instant = createdAt instanceof Timestamp timestamp ? timestamp.toInstant() : createdAt.toInstant();
+        return new NoteCursor(instant, id);
+    }
+
+    /**
+     * Encodes the cursor as an URL safe token.
+     * @return
+     */
+    public String encode() {
+        String raw = this.createdAt.toString() + SEPARATOR + this.id.toString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token created by {@link #encode()}.
+     * @param token
+     * @return
+     * @throws IllegalArgumentException if the token is not valid.
+     */
+    public static NoteCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new NoteCursor(Instant.parse(raw.substring(0, separator)), UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+
+    public Timestamp createdAtTimestamp() {
+        return Timestamp.from(this.createdAt);
+    }
+}
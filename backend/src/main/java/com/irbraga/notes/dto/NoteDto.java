@@ -20,12 +20,21 @@ public record NoteDto(@Size(min = 1, max = 50) String title,
     @AssertTrue(message = "Hex color is not valid.")
     public boolean isColorHexColorValid() {
         if (this.color != null) {
-            Matcher matcher = pattern.matcher(this.color);
-            return matcher.matches();
+            return isHexColor(this.color);
         }
         return true;
     }
 
+    /**
+     * Checks a color against the hex pattern.
+     * @param color
+     * @return
+     */
+    public static boolean isHexColor(String color) {
+        Matcher matcher = pattern.matcher(color);
+        return matcher.matches();
+    }
+
     /**
      * Checking if one of the two fields were inform.
      * @return
@@ -0,0 +1,20 @@
+package com.irbraga.notes.dto;
+
+import java.util.List;
+
+/**
+ * A note of a bulk import, tags are referenced by name and created when missing.
+ */
+public record NoteImportDto(String title,
+                            String body,
+                            String color,
+                            List<String> tags) {
+
+    public NoteDto toNoteDto() {
+        return new NoteDto(this.title, this.body, this.color);
+    }
+
+    public List<String> tagsOrEmpty() {
+        return this.tags == null ? List.of() : this.tags;
+    }
+}
@@ -0,0 +1,20 @@
+package com.irbraga.notes.dto;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Field level changes of a note, a null field is left unchanged.
+ * The version is the one of the note the changes were made on.
+ */
+public record NotePatchDto(@Size(min = 1, max = 50) String title,
+                           String body,
+                           @Size(min = 7, max = 7) String color,
+                           @NotNull Long version) {
+
+    @AssertTrue(message = "Hex color is not valid.")
+    public boolean isColorHexColorValid() {
+        return this.color == null || NoteDto.isHexColor(this.color);
+    }
+}
@@ -0,0 +1,19 @@
+package com.irbraga.notes.dto;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Note and its tags as returned by the endpoints.
+ */
+public record NoteReturnObject(UUID id,
+                               String title,
+                               String body,
+                               String color,
+                               Date createdAt,
+                               Date updatedAt,
+                               Long version,
+                               List<TagReturnObject> tags) {
+    
+}
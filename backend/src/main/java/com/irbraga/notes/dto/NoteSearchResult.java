@@ -0,0 +1,25 @@
+package com.irbraga.notes.dto;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Projection returned by the full text search.
+ * The snippet is the matching part of the note with the matched words highlighted.
+ */
+public interface NoteSearchResult {
+
+    UUID getId();
+
+    String getTitle();
+
+    String getSnippet();
+
+    String getColor();
+
+    Date getCreatedAt();
+
+    Date getUpdatedAt();
+
+    Float getRank();
+}
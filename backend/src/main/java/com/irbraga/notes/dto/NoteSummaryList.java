@@ -0,0 +1,50 @@
+package com.irbraga.notes.dto;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A list of notes with every tag sent once: the notes reference their tags by ID in the tags dictionary.
+ * nextCursor is null when there are no more notes, or the list is not paginated.
+ */
+public record NoteSummaryList(List<Note> notes, Map<UUID, TagReturnObject> tags, String nextCursor) {
+
+    /**
+     * Note as in NoteSummaryReturnObject, with the IDs of its tags.
+     */
+    public record Note(UUID id,
+                       String title,
+                       String excerpt,
+                       String color,
+                       Date createdAt,
+                       Date updatedAt,
+                       Long version,
+                       List<UUID> tagIds) {
+
+    }
+
+    /**
+     * Moves the tags of the notes to the dictionary.
+     * @param notes
+     * @param nextCursor
+     * @return
+     */
+    public static NoteSummaryList of(List<NoteSummaryReturnObject> notes, String nextCursor) {
+        Map<UUID, TagReturnObject> tags = new LinkedHashMap<>();
+        List<Note> refs = new ArrayList<>(notes.size());
+        for (NoteSummaryReturnObject note : notes) {
+            List<TagReturnObject> noteTags = note.tags() == null ? List.of() : note.tags();
+            List<UUID> tagIds = new ArrayList<>(noteTags.size());
+            for (TagReturnObject tag : noteTags) {
+                tags.putIfAbsent(tag.id(), tag);
+                tagIds.add(tag.id());
+            }
+            refs.add(new Note(note.id(), note.title(), note.excerpt(), note.color(), note.createdAt(), note.updatedAt(), note.version(), tagIds));
+        }
+        return new NoteSummaryList(refs, tags, nextCursor);
+    }
+}
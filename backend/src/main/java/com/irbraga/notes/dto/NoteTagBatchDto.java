@@ -0,0 +1,23 @@
+package com.irbraga.notes.dto;
+
+import java.util.List;
+
+import com.irbraga.notes.services.NoteTagsService;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Tags to add to and remove from notes, applied in one transaction: the additions first, then the removals.
+ */
+public record NoteTagBatchDto(@Valid @Size(max = NoteTagsService.MAX_BATCH_SIZE) List<NoteTagDto> add,
+                              @Valid @Size(max = NoteTagsService.MAX_BATCH_SIZE) List<NoteTagDto> remove) {
+
+    public List<NoteTagDto> addOrEmpty() {
+        return this.add == null ? List.of() : this.add;
+    }
+
+    public List<NoteTagDto> removeOrEmpty() {
+        return this.remove == null ? List.of() : this.remove;
+    }
+}
@@ -0,0 +1,9 @@
+package com.irbraga.notes.dto;
+
+/**
+ * Number of tags actually added and removed, pairs already in the wanted state
+ * or whose note or tag does not exist are not counted.
+ */
+public record NoteTagBatchResult(int added, int removed) {
+    
+}
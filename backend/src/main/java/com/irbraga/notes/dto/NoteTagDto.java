@@ -0,0 +1,12 @@
+package com.irbraga.notes.dto;
+
+import java.util.UUID;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * A note and one of its tags.
+ */
+public record NoteTagDto(@NotNull UUID noteId, @NotNull UUID tagId) {
+    
+}
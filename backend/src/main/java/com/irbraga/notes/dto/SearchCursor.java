@@ -0,0 +1,48 @@
+package com.irbraga.notes.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position of a note in the search results (rank, note_id).
+ * Clients receive it as an opaque token.
+ */
+public record SearchCursor(float rank, UUID id) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Builds the cursor pointing at the given search result.
+     * @param result
+     * @return
+     */
+    public static SearchCursor of(NoteSearchResult result) {
+        return new SearchCursor(result.getRank(), result.getId());
+    }
+
+    /**
+     * Encodes the cursor as an URL safe token.
+     * @return
+     */
+    public String encode() {
+        String raw = Float.toString(this.rank) + SEPARATOR + this.id.toString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token created by {@link #encode()}.
+     * @param token
+     * @return
+     * @throws IllegalArgumentException if the token is not valid.
+     */
+    public static SearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new SearchCursor(Float.parseFloat(raw.substring(0, separator)), UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+}
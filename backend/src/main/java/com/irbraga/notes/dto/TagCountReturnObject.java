@@ -0,0 +1,11 @@
+package com.irbraga.notes.dto;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Tag with the number of notes using it, as returned by the tag listings that read the maintained counts.
+ */
+public record TagCountReturnObject(UUID id, String name, int noteCount, Date createdAt, Date updatedAt) {
+
+}
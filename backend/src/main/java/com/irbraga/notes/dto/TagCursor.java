@@ -0,0 +1,33 @@
+package com.irbraga.notes.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of a tag in the keyset pagination (name, unique).
+ * Clients receive it as an opaque token.
+ */
+public record TagCursor(String name) {
+
+    /**
+     * Encodes the cursor as an URL safe token.
+     * @return
+     */
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(this.name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token created by {@link #encode()}.
+     * @param token
+     * @return
+     * @throws IllegalArgumentException if the token is not valid.
+     */
+    public static TagCursor decode(String token) {
+        try {
+            return new TagCursor(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor.", e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.irbraga.notes.dto;
+
+import java.util.UUID;
+
+/**
+ * Tag suggested for a name prefix, with the number of notes using it.
+ */
+public record TagSuggestion(UUID id,
+                            String name,
+                            long noteCount) {
+
+}
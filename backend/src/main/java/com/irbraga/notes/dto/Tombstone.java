@@ -0,0 +1,11 @@
+package com.irbraga.notes.dto;
+
+import java.util.UUID;
+
+/**
+ * A deletion reported by the change feed.
+ * For a removed tag link (type note_tag) id is the note ID and relatedId the tag ID.
+ */
+public record Tombstone(String type, UUID id, UUID relatedId) {
+    
+}
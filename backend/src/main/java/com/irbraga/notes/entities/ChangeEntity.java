@@ -0,0 +1,57 @@
+package com.irbraga.notes.entities;
+
+import java.util.Date;
+import java.util.UUID;
+
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import lombok.Data;
+
+/**
+ * An entry of the change feed. The entries are written by database triggers on
+ * notes, tags and notes_tags, the application only reads and prunes them.
+ */
+@Data
+@Entity
+@Immutable
+@Table(name = "changes")
+public class ChangeEntity {
+
+    public static final String TYPE_NOTE = "note";
+    public static final String TYPE_TAG = "tag";
+    // A link between a note (entityId) and a tag (relatedId).
+    public static final String TYPE_NOTE_TAG = "note_tag";
+
+    public static final String OPERATION_UPSERT = "upsert";
+    public static final String OPERATION_DELETE = "delete";
+
+    @Id
+    @Column(name = "change_id")
+    private Long id;
+
+    @Column(name = "entity_type", nullable = false, length = 8)
+    private String entityType;
+
+    @Column(name = "entity_id", nullable = false)
+    private UUID entityId;
+
+    @Column(name = "related_id", nullable = true)
+    private UUID relatedId;
+
+    @Column(name = "operation", nullable = false, length = 6)
+    private String operation;
+
+    // ID of the transaction that wrote the change, the feed is read in the order of these.
+    @Column(name = "xact_id", nullable = false)
+    private Long xactId;
+
+    @Column(name = "changed_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date changedAt;
+}
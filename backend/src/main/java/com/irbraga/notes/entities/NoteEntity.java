@@ -4,8 +4,10 @@ import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.annotations.UuidGenerator;
 import org.hibernate.validator.constraints.Length;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
@@ -14,8 +16,6 @@ import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
@@ -24,15 +24,24 @@ import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
+import jakarta.persistence.Version;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 @Data
 @Entity
 @Table(name = "notes")
 public class NoteEntity {
 
+    public static final int TAGS_BATCH_SIZE = 500;
+
+    /**
+     * Generated in memory (time based, so new rows land at the end of the primary key index),
+     * which lets Hibernate batch the inserts.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @UuidGenerator(style = UuidGenerator.Style.TIME)
     @Column(name = "note_id")
     private UUID id;
 
@@ -57,8 +66,24 @@ public class NoteEntity {
     @UpdateTimestamp
     private Date updatedAt;
 
+    /**
+     * Incremented by every update, a write based on an older version fails.
+     * Autosaved patches are written outside of JPA, see NotesAutosaveService.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    /**
+     * Tags are loaded on demand. Queries that serialize them either fetch them
+     * through an entity graph or let Hibernate load the tags of up to TAGS_BATCH_SIZE
+     * notes in a single IN query.
+     */
     @JsonManagedReference
-    @ManyToMany(fetch = FetchType.EAGER,
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @BatchSize(size = TAGS_BATCH_SIZE)
+    @ManyToMany(fetch = FetchType.LAZY,
                 cascade = CascadeType.ALL)
     @JoinTable(name = "notes_tags",
         joinColumns = {@JoinColumn(name = "note_id")},
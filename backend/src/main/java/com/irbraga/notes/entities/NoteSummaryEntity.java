@@ -0,0 +1,84 @@
+package com.irbraga.notes.entities;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Immutable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.JoinTable;
+import jakarta.persistence.ManyToMany;
+import jakarta.persistence.Table;
+import jakarta.persistence.Temporal;
+import jakarta.persistence.TemporalType;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Read-only view of a note for the list endpoints, mapped to the notes table without the body.
+ * The excerpt is generated by the database from the body, see ddl.sql.
+ */
+@Data
+@Entity
+@Immutable
+@Table(name = "notes")
+public class NoteSummaryEntity {
+
+    // Length of the excerpt, in characters.
+    public static final int EXCERPT_LENGTH = 200;
+
+    @Id
+    @Column(name = "note_id")
+    private UUID id;
+
+    @Column(name = "title")
+    private String title;
+
+    @Column(name = "excerpt", insertable = false, updatable = false)
+    private String excerpt;
+
+    @Column(name = "color", columnDefinition = "bpchar")
+    private String color;
+
+    @Column(name = "created_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt;
+
+    @Column(name = "updated_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date updatedAt;
+
+    @Column(name = "version")
+    private Long version;
+
+    /**
+     * Loaded like the tags of NoteEntity, through an entity graph or in batches.
+     */
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @BatchSize(size = NoteEntity.TAGS_BATCH_SIZE)
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "notes_tags",
+        joinColumns = {@JoinColumn(name = "note_id")},
+        inverseJoinColumns = {@JoinColumn(name = "tag_id")})
+    private List<TagEntity> tags;
+
+    /**
+     * Excerpt of a body, as the database generates it.
+     * @param body
+     * @return
+     */
+    public static String excerpt(String body) {
+        if (body == null || body.codePointCount(0, body.length()) <= EXCERPT_LENGTH) {
+            return body;
+        }
+        return body.substring(0, body.offsetByCodePoints(0, EXCERPT_LENGTH));
+    }
+}
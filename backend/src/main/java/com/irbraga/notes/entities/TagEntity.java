@@ -21,6 +21,8 @@ import jakarta.persistence.Table;
 import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 @Data
 @Entity
@@ -46,7 +48,13 @@ public class TagEntity {
     @UpdateTimestamp
     private Date updatedAt;
 
+    // Maintained by the triggers on notes_tags, never written by the application.
+    @Column(name = "note_count", insertable = false, updatable = false)
+    private int noteCount;
+
     @JsonBackReference
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     @ManyToMany(mappedBy = "tags", cascade = CascadeType.ALL)
     private List<NoteEntity> notes;
 }
@@ -0,0 +1,57 @@
+package com.irbraga.notes.mappers;
+
+import java.util.List;
+
+import org.mapstruct.InjectionStrategy;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.ReportingPolicy;
+
+import com.irbraga.notes.dto.NoteDto;
+import com.irbraga.notes.dto.NoteReturnObject;
+import com.irbraga.notes.dto.NoteSummaryReturnObject;
+import com.irbraga.notes.entities.NoteEntity;
+import com.irbraga.notes.entities.NoteSummaryEntity;
+
+/**
+ * Maps notes between the requests, the entities and the responses.
+ * The implementation is generated at compile time, a property added to one side and not the other fails the build.
+ * Mapping a note to a response reads its tags, they must be loaded or the note still attached.
+ */
+@Mapper(componentModel = "spring", uses = TagsMapper.class, injectionStrategy = InjectionStrategy.CONSTRUCTOR,
+        unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface NotesMapper {
+
+    /**
+     * New note from a request.
+     * @param dto
+     * @return
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "tags", ignore = true)
+    public NoteEntity toEntity(NoteDto dto);
+
+    /**
+     * Copies a request into an existing note.
+     * @param dto
+     * @param note
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "tags", ignore = true)
+    public void update(NoteDto dto, @MappingTarget NoteEntity note);
+
+    public NoteReturnObject toResponse(NoteEntity note);
+
+    public List<NoteReturnObject> toResponse(List<NoteEntity> notes);
+
+    public NoteSummaryReturnObject toSummary(NoteSummaryEntity note);
+
+    public List<NoteSummaryReturnObject> toSummary(List<NoteSummaryEntity> notes);
+}
@@ -0,0 +1,48 @@
+package com.irbraga.notes.mappers;
+
+import java.util.List;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.ReportingPolicy;
+
+import com.irbraga.notes.dto.TagDto;
+import com.irbraga.notes.dto.TagReturnObject;
+import com.irbraga.notes.entities.TagEntity;
+
+/**
+ * Maps tags between the requests, the entities and the responses.
+ * The implementation is generated at compile time, a property added to one side and not the other fails the build.
+ */
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface TagsMapper {
+
+    /**
+     * New tag from a request.
+     * @param dto
+     * @return
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "noteCount", ignore = true)
+    @Mapping(target = "notes", ignore = true)
+    public TagEntity toEntity(TagDto dto);
+
+    /**
+     * Copies a request into an existing tag.
+     * @param dto
+     * @param tag
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "noteCount", ignore = true)
+    @Mapping(target = "notes", ignore = true)
+    public void update(TagDto dto, @MappingTarget TagEntity tag);
+
+    public TagReturnObject toResponse(TagEntity tag);
+
+    public List<TagReturnObject> toResponse(List<TagEntity> tags);
+}
@@ -0,0 +1,78 @@
+package com.irbraga.notes.repositories;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.irbraga.notes.entities.ChangeEntity;
+
+public interface ChangesRepository extends JpaRepository<ChangeEntity, Long>{
+
+    /**
+     * Changes of the transactions after since and before watermark, in transaction order.
+     * @param since
+     * @param watermark
+     * @param limit
+     * @return
+     */
+    public List<ChangeEntity> findByXactIdGreaterThanAndXactIdLessThanOrderByXactIdAscIdAsc(long since, long watermark, Limit limit);
+
+    /**
+     * Changes of the given transaction after the given change ID, oldest first.
+     * @param xactId
+     * @param id
+     * @return
+     */
+    public List<ChangeEntity> findByXactIdAndIdGreaterThanOrderByIdAsc(long xactId, long id);
+
+    public boolean existsByXactIdGreaterThanAndXactIdLessThan(long since, long watermark);
+
+    /**
+     * Oldest transaction still running: every transaction with a lower ID has ended, and
+     * every transaction starting from now on gets a higher one.
+     * @return
+     */
+    @Query(value = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint", nativeQuery = true)
+    public long findWatermark();
+
+    /**
+     * ID of the next transaction to start, every transaction with a lower ID has started.
+     * @return
+     */
+    @Query(value = "SELECT pg_snapshot_xmax(pg_current_snapshot())::text::bigint", nativeQuery = true)
+    public long findNextXactId();
+
+    /**
+     * Last transaction whose changes were pruned.
+     * @return
+     */
+    @Query(value = "SELECT pruned_through FROM changes_horizon", nativeQuery = true)
+    public long findPrunedThrough();
+
+    /**
+     * Moves the pruning horizon to the last transaction of the changes older than the given date.
+     * @param before
+     * @return
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE changes_horizon SET pruned_through = greatest(pruned_through, (SELECT coalesce(max(xact_id), 0) FROM changes WHERE changed_at < :before))",
+           nativeQuery = true)
+    public int updatePrunedThrough(@Param("before") Date before);
+
+    /**
+     * Deletes the changes older than the given date.
+     * @param before
+     * @return the number of deleted changes.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChangeEntity c WHERE c.changedAt < :before")
+    public int deleteByChangedAtBefore(@Param("before") Date before);
+}
@@ -0,0 +1,94 @@
+package com.irbraga.notes.repositories;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.irbraga.notes.config.CacheConfig;
+import com.irbraga.notes.entities.NoteSummaryEntity;
+
+/**
+ * Read-only queries of the list endpoints, they never read the body of the notes.
+ * Writes go through NotesRepository, which evicts the caches filled here.
+ */
+@Repository
+public interface NoteSummariesRepository extends org.springframework.data.repository.Repository<NoteSummaryEntity, UUID> {
+
+    /**
+     * Columns of NoteSummaryEntity, for the native queries.
+     */
+    static final String COLUMNS = "n.note_id, n.title, n.excerpt, n.color, n.created_at, n.updated_at, n.version";
+
+    /**
+     * Loads the notes and their tags in a single query.
+     * @return
+     */
+    @EntityGraph(attributePaths = "tags")
+    @Query("SELECT n FROM NoteSummaryEntity n")
+    public List<NoteSummaryEntity> findAll();
+
+    /**
+     * Loads the notes with a tag, along with all their tags, in a single query.
+     * The tag filter is a subquery, fetching through the filtered join would only load the matching tag.
+     * Cached, the returned entities are shared and must not be changed.
+     * @param uuid
+     * @return
+     */
+    @Cacheable(CacheConfig.NOTES_BY_TAG)
+    @Query("SELECT n FROM NoteSummaryEntity n LEFT JOIN FETCH n.tags WHERE n.id IN (SELECT nt.id FROM NoteSummaryEntity nt JOIN nt.tags t WHERE t.id = :uuid)")
+    public List<NoteSummaryEntity> findByTagsId(@Param("uuid") UUID uuid);
+
+    /**
+     * First page of the keyset pagination, ordered by (created_at, note_id).
+     * Tags are batch loaded, see {@link NoteSummaryEntity#getTags()}.
+     * @param limit
+     * @return
+     */
+    @Query(value = "SELECT " + COLUMNS + " FROM notes n ORDER BY n.created_at, n.note_id LIMIT :limit", nativeQuery = true)
+    public List<NoteSummaryEntity> findFirstPage(@Param("limit") int limit);
+
+    /**
+     * Next page of the keyset pagination, seeking right after the last (created_at, note_id) returned.
+     * @param createdAt
+     * @param id
+     * @param limit
+     * @return
+     */
+    @Query(value = "SELECT " + COLUMNS + " FROM notes n WHERE (n.created_at, n.note_id) > (:createdAt, :id) ORDER BY n.created_at, n.note_id LIMIT :limit", nativeQuery = true)
+    public List<NoteSummaryEntity> findPageAfter(@Param("createdAt") Timestamp createdAt, @Param("id") UUID id, @Param("limit") int limit);
+
+    /**
+     * Loads the given notes ordered by creation date.
+     * Tags are batch loaded, see {@link NoteSummaryEntity#getTags()}.
+     * @param ids
+     * @return
+     */
+    @Query("SELECT n FROM NoteSummaryEntity n WHERE n.id IN :ids ORDER BY n.createdAt, n.id")
+    public List<NoteSummaryEntity> findByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Notes having all the tags in allTags, at least one of anyTags and none of noneTags, ordered by creation date.
+     * An empty array disables its condition, allCount must be the number of distinct IDs in allTags.
+     * @param allTags
+     * @param allCount
+     * @param anyTags
+     * @param noneTags
+     * @param limit
+     * @return
+     */
+    @Query(value = "SELECT " + COLUMNS + " FROM notes n "
+            + "WHERE (:allCount = 0 OR n.note_id IN (SELECT nt.note_id FROM notes_tags nt WHERE nt.tag_id = ANY(:allTags) GROUP BY nt.note_id HAVING count(*) = :allCount)) "
+            + "AND (cardinality(:anyTags) = 0 OR EXISTS (SELECT 1 FROM notes_tags nt WHERE nt.note_id = n.note_id AND nt.tag_id = ANY(:anyTags))) "
+            + "AND NOT EXISTS (SELECT 1 FROM notes_tags nt WHERE nt.note_id = n.note_id AND nt.tag_id = ANY(:noneTags)) "
+            + "ORDER BY n.created_at, n.note_id LIMIT :limit", nativeQuery = true)
+    public List<NoteSummaryEntity> findByTagFilter(@Param("allTags") UUID[] allTags, @Param("allCount") int allCount,
+                                                   @Param("anyTags") UUID[] anyTags, @Param("noneTags") UUID[] noneTags,
+                                                   @Param("limit") int limit);
+}
@@ -1,15 +1,204 @@
 package com.irbraga.notes.repositories;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.irbraga.notes.config.CacheConfig;
+import com.irbraga.notes.dto.CollectionVersion;
+import com.irbraga.notes.dto.NoteSearchResult;
 import com.irbraga.notes.entities.NoteEntity;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface NotesRepository extends JpaRepository<NoteEntity, UUID>{
 
-    public List<NoteEntity> findByTagsId(UUID uuid);
+    /**
+     * Loads the notes and their tags in a single query.
+     */
+    @Override
+    @EntityGraph(attributePaths = "tags")
+    public List<NoteEntity> findAll();
+
+    /**
+     * Loads the note and its tags in a single query.
+     */
+    @Override
+    @EntityGraph(attributePaths = "tags")
+    public Optional<NoteEntity> findById(UUID uuid);
+
+    /**
+     * Cached lookup of a note and its tags, for the read endpoints.
+     * The returned entity is shared, it must not be changed.
+     * @param uuid
+     * @return
+     */
+    @Cacheable(CacheConfig.NOTES)
+    @Query("SELECT n FROM NoteEntity n LEFT JOIN FETCH n.tags WHERE n.id = :uuid")
+    public Optional<NoteEntity> findCachedById(@Param("uuid") UUID uuid);
+
+    /**
+     * Reloads a note into the cache, when the cached one is older than the stored one
+     * (written by another instance, or cached while it was being saved).
+     * The returned entity is shared, it must not be changed.
+     * @param uuid
+     * @return
+     */
+    @CachePut(CacheConfig.NOTES)
+    @Query("SELECT n FROM NoteEntity n LEFT JOIN FETCH n.tags WHERE n.id = :uuid")
+    public Optional<NoteEntity> refreshCachedById(@Param("uuid") UUID uuid);
+
+    /**
+     * Version of the notes table, a single aggregate query backed by the updated_at index.
+     * @return
+     */
+    @Query("SELECT new com.irbraga.notes.dto.CollectionVersion(count(n), max(n.updatedAt)) FROM NoteEntity n")
+    public CollectionVersion findVersion();
+
+    /**
+     * Last update of a note, without loading it.
+     * @param uuid
+     * @return
+     */
+    @Query("SELECT n.updatedAt FROM NoteEntity n WHERE n.id = :uuid")
+    public Optional<Date> findUpdatedAtById(@Param("uuid") UUID uuid);
+
+    /**
+     * Saves a note and evicts it from the caches.
+     */
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.NOTES, key = "#result.id"),
+        @CacheEvict(cacheNames = CacheConfig.NOTES_BY_TAG, allEntries = true)
+    })
+    public <S extends NoteEntity> S save(S entity);
+
+    /**
+     * Deletes a note and evicts it from the caches.
+     */
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.NOTES, key = "#p0"),
+        @CacheEvict(cacheNames = CacheConfig.NOTES_BY_TAG, allEntries = true)
+    })
+    public void deleteById(UUID uuid);
+
+    /**
+     * Streams all notes using a JDBC fetch size, so rows are read from the cursor as they are consumed.
+     * Tags are not fetched, callers batch load them per chunk of notes.
+     * Must be called inside a transaction and the stream must be closed.
+     * @return
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("SELECT n FROM NoteEntity n ORDER BY n.createdAt, n.id")
+    public Stream<NoteEntity> streamAll();
+
+    /**
+     * Streams the (ID, creation date) of every note.
+     * Must be called inside a transaction and the stream must be closed.
+     * @return
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("SELECT n.id, n.createdAt FROM NoteEntity n ORDER BY n.createdAt, n.id")
+    public Stream<Object[]> streamCreationDates();
+
+    /**
+     * Streams every (note ID, tag ID) link.
+     * Must be called inside a transaction and the stream must be closed.
+     * @return
+     */
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE))
+    @Query("SELECT n.id, t.id FROM NoteEntity n JOIN n.tags t")
+    public Stream<Object[]> streamTagLinks();
+
+    /**
+     * IDs of the given notes having the tag.
+     * @param tagId
+     * @param ids
+     * @return
+     */
+    @Query("SELECT n.id FROM NoteEntity n JOIN n.tags t WHERE t.id = :tagId AND n.id IN :ids")
+    public List<UUID> findIdsByTagIdAndIdIn(@Param("tagId") UUID tagId, @Param("ids") Collection<UUID> ids);
+
+    /**
+     * (ID, creation date) of the given notes that exist.
+     * @param ids
+     * @return
+     */
+    @Query("SELECT n.id, n.createdAt FROM NoteEntity n WHERE n.id IN :ids")
+    public List<Object[]> findCreationDates(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * (note ID, tag ID) links of the given notes.
+     * @param ids
+     * @return
+     */
+    @Query("SELECT n.id, t.id FROM NoteEntity n JOIN n.tags t WHERE n.id IN :ids")
+    public List<Object[]> findTagLinks(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Loads the given notes ordered by creation date.
+     * Tags are batch loaded, see {@link NoteEntity#getTags()}.
+     * @param ids
+     * @return
+     */
+    @Query("SELECT n FROM NoteEntity n WHERE n.id IN :ids ORDER BY n.createdAt, n.id")
+    public List<NoteEntity> findByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Rows read per round trip when streaming notes.
+     */
+    public static final int STREAM_FETCH_SIZE = 500;
+
+    /**
+     * Full text search over title and body, best ranked first.
+     * The GIN index on search_vector finds the matches, only them are ranked and
+     * the snippets are built just for the notes of the page.
+     */
+    static final String SEARCH_SELECT = "SELECT r.note_id AS \"id\", r.title AS \"title\", r.color AS \"color\", "
+            + "r.created_at AS \"createdAt\", r.updated_at AS \"updatedAt\", r.rank AS \"rank\", "
+            + "ts_headline('simple', coalesce(r.title, '') || ' ' || coalesce(r.body, ''), r.query, 'MaxFragments=2, MinWords=5, MaxWords=20') AS \"snippet\" "
+            + "FROM (SELECT n.note_id, n.title, n.body, n.color, n.created_at, n.updated_at, q.query, ts_rank(n.search_vector, q.query) AS rank "
+            + "      FROM notes n, websearch_to_tsquery('simple', :q) AS q(query) "
+            + "      WHERE n.search_vector @@ q.query ";
+    static final String SEARCH_ORDER = "      ORDER BY rank DESC, n.note_id LIMIT :limit) r "
+            + "ORDER BY r.rank DESC, r.note_id";
+
+    /**
+     * First page of a full text search.
+     * @param q
+     * @param limit
+     * @return
+     */
+    @Query(value = SEARCH_SELECT + SEARCH_ORDER, nativeQuery = true)
+    public List<NoteSearchResult> search(@Param("q") String q, @Param("limit") int limit);
+
+    /**
+     * Next page of a full text search, seeking right after the last (rank, note_id) returned.
+     * @param q
+     * @param rank
+     * @param id
+     * @param limit
+     * @return
+     */
+    @Query(value = SEARCH_SELECT
+            + "AND (ts_rank(n.search_vector, q.query) < :rank OR (ts_rank(n.search_vector, q.query) = :rank AND n.note_id > :id)) "
+            + SEARCH_ORDER, nativeQuery = true)
+    public List<NoteSearchResult> searchAfter(@Param("q") String q, @Param("rank") float rank, @Param("id") UUID id, @Param("limit") int limit);
 }
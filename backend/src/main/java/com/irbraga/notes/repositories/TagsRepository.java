@@ -1,10 +1,134 @@
 package com.irbraga.notes.repositories;
 
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.irbraga.notes.config.CacheConfig;
+import com.irbraga.notes.dto.CollectionVersion;
+import com.irbraga.notes.dto.TagCountReturnObject;
+import com.irbraga.notes.dto.TagSuggestion;
 import com.irbraga.notes.entities.TagEntity;
 
 public interface TagsRepository extends JpaRepository<TagEntity, UUID>{
+
+    /**
+     * Cached lookup of a tag, for the read endpoints.
+     * The returned entity is shared, it must not be changed.
+     * @param uuid
+     * @return
+     */
+    @Cacheable(CacheConfig.TAGS)
+    @Query("SELECT t FROM TagEntity t WHERE t.id = :uuid")
+    public Optional<TagEntity> findCachedById(@Param("uuid") UUID uuid);
+
+    /**
+     * Reloads a tag into the cache, when the cached one is older than the stored one
+     * (written by another instance, or cached while it was being saved).
+     * The returned entity is shared, it must not be changed.
+     * @param uuid
+     * @return
+     */
+    @CachePut(CacheConfig.TAGS)
+    @Query("SELECT t FROM TagEntity t WHERE t.id = :uuid")
+    public Optional<TagEntity> refreshCachedById(@Param("uuid") UUID uuid);
+
+    /**
+     * Cached list of all tags, for the read endpoints.
+     * The returned entities are shared, they must not be changed.
+     * @return
+     */
+    @Cacheable(CacheConfig.TAG_LIST)
+    @Query("SELECT t FROM TagEntity t")
+    public List<TagEntity> findAllCached();
+
+    /**
+     * Version of the tags table, a single aggregate query backed by the updated_at index.
+     * @return
+     */
+    @Query("SELECT new com.irbraga.notes.dto.CollectionVersion(count(t), max(t.updatedAt)) FROM TagEntity t")
+    public CollectionVersion findVersion();
+
+    /**
+     * Last update of a tag, without loading it.
+     * @param uuid
+     * @return
+     */
+    @Query("SELECT t.updatedAt FROM TagEntity t WHERE t.id = :uuid")
+    public Optional<Date> findUpdatedAtById(@Param("uuid") UUID uuid);
+
+    /**
+     * Every tag with its maintained note count, to build the suggestions index.
+     * @return
+     */
+    @Query("SELECT new com.irbraga.notes.dto.TagSuggestion(t.id, t.name, t.noteCount) FROM TagEntity t")
+    public List<TagSuggestion> findAllSuggestions();
+
+    /**
+     * Most used tags whose lower-cased name matches a LIKE pattern, for when the suggestions index is not ready.
+     * @param pattern lower-cased, with a backslash as the escape character.
+     * @param limit
+     * @return
+     */
+    @Query("SELECT new com.irbraga.notes.dto.TagSuggestion(t.id, t.name, t.noteCount) FROM TagEntity t "
+         + "WHERE trim(lower(t.name)) LIKE :pattern ESCAPE '\\' ORDER BY t.noteCount DESC, trim(lower(t.name))")
+    public List<TagSuggestion> findSuggestions(@Param("pattern") String pattern, Limit limit);
+
+    /**
+     * First page of the keyset pagination, ordered by name (backed by the unique index on name).
+     * No count query, callers ask for one more tag than the page size to know whether there is a next page.
+     * @param limit
+     * @return
+     */
+    @Query("SELECT new com.irbraga.notes.dto.TagCountReturnObject(t.id, t.name, t.noteCount, t.createdAt, t.updatedAt) FROM TagEntity t ORDER BY t.name")
+    public List<TagCountReturnObject> findFirstPage(Limit limit);
+
+    /**
+     * Next page of the keyset pagination, seeking right after the last name returned.
+     * @param name
+     * @param limit
+     * @return
+     */
+    @Query("SELECT new com.irbraga.notes.dto.TagCountReturnObject(t.id, t.name, t.noteCount, t.createdAt, t.updatedAt) FROM TagEntity t "
+         + "WHERE t.name > :name ORDER BY t.name")
+    public List<TagCountReturnObject> findPageAfter(@Param("name") String name, Limit limit);
+
+    /**
+     * Most used tags, read from the maintained note counts (backed by tags_note_count_idx).
+     * @param limit
+     * @return
+     */
+    @Query("SELECT new com.irbraga.notes.dto.TagCountReturnObject(t.id, t.name, t.noteCount, t.createdAt, t.updatedAt) FROM TagEntity t "
+         + "ORDER BY t.noteCount DESC, t.name")
+    public List<TagCountReturnObject> findTop(Limit limit);
+
+    /**
+     * Saves a tag and evicts it from the caches, notes are evicted too since they embed their tags.
+     */
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.TAGS, key = "#result.id"),
+        @CacheEvict(cacheNames = {CacheConfig.TAG_LIST, CacheConfig.NOTES, CacheConfig.NOTES_BY_TAG}, allEntries = true)
+    })
+    public <S extends TagEntity> S save(S entity);
+
+    /**
+     * Deletes a tag and evicts it from the caches, notes are evicted too since they embed their tags.
+     */
+    @Override
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.TAGS, key = "#p0"),
+        @CacheEvict(cacheNames = {CacheConfig.TAG_LIST, CacheConfig.NOTES, CacheConfig.NOTES_BY_TAG}, allEntries = true)
+    })
+    public void deleteById(UUID uuid);
 }
@@ -0,0 +1,356 @@
+package com.irbraga.notes.services;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.irbraga.notes.dto.ChangeEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pushes the changes of notes, tags and tag links to the clients subscribed to the live events.
+ *
+ * The change log trigger publishes every change with NOTIFY when its transaction commits, so the changes
+ * made through any instance, or by any other writer, reach the subscribers of every instance. Each instance
+ * listens on one dedicated connection to the primary, outside the pool, and fans the changes out.
+ *
+ * Every subscriber has a bounded buffer, written to its client by its own task. A subscriber too slow to
+ * keep up is dropped: it gets a resync event with a sync token, catches up with the change feed from there
+ * and subscribes again. The same happens to all subscribers when the listener loses its connection.
+ *
+ * Changes arrive in commit order, the feed is read in transaction order, so the token of a subscriber
+ * only moves at the heartbeats: to the watermark read at the previous heartbeat, once the changes received
+ * before were sent. Every transaction below it had ended by then and its changes had arrived.
+ * The ID of each event is the token of the subscriber when it was sent.
+ */
+@Service
+public class ChangeEventsService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangeEventsService.class);
+
+    public static final String CHANNEL = "changes";
+    public static final String EVENT_READY = "ready";
+    public static final String EVENT_CHANGE = "change";
+    public static final String EVENT_RESYNC = "resync";
+
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(5);
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+    @Autowired
+    private ChangesService changesService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${notes.changes.events.buffer-size:256}")
+    private int bufferSize;
+    @Value("${notes.changes.events.heartbeat-interval:15s}")
+    private Duration heartbeatInterval;
+    @Value("${notes.changes.events.timeout:30m}")
+    private Duration timeout;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Sending blocks on the client connection, one virtual thread per subscriber sending.
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private Counter resyncs;
+    private volatile boolean running;
+    private volatile boolean listening;
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("notes.changes.events.subscribers", subscribers, Set::size).register(meterRegistry);
+        resyncs = Counter.builder("notes.changes.events.resyncs").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        Thread.ofPlatform().name("change-events-listener").daemon().start(this::listen);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        senders.shutdown();
+    }
+
+    /**
+     * Whether the changes are received, subscribers would miss them otherwise.
+     * @return
+     */
+    public boolean isListening() {
+        return listening;
+    }
+
+    /**
+     * Subscribes a client to the changes.
+     * The first event is ready, its data is the token the changes are pushed from: the changes of the
+     * transactions after it are pushed, the ones up to it come from the change feed. A client reconnecting
+     * with the ID of the last event it received gets a resync event instead when changes were made since.
+     * @param lastEventId ID of the last event received, null for a new subscription.
+     * @return
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        // Read once subscribed so no later transaction is missed, and in a read-write transaction so it is read on the primary.
+        long token = transactionTemplate.execute(status -> changesService.liveToken());
+        if (lastEventId != null && lastEventId != token) {
+            subscriber.resync(lastEventId);
+        } else {
+            subscriber.start(token);
+        }
+        return emitter;
+    }
+
+    /**
+     * Receives the notifications until the application stops, reconnecting when the connection is lost.
+     */
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                                                                     dataSourceProperties.determineUsername(),
+                                                                     dataSourceProperties.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                long watermark = readWatermark(connection);
+                listening = true;
+                LOGGER.info("Listening to the changes.");
+                long nextHeartbeat = System.currentTimeMillis() + heartbeatInterval.toMillis();
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) heartbeatInterval.toMillis());
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                    if (System.currentTimeMillis() >= nextHeartbeat) {
+                        // The changes of the transactions below the previous watermark have all been dispatched by now.
+                        long checkpoint = watermark - 1;
+                        subscribers.forEach(subscriber -> subscriber.heartbeat(checkpoint));
+                        watermark = readWatermark(connection);
+                        nextHeartbeat = System.currentTimeMillis() + heartbeatInterval.toMillis();
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    LOGGER.warn("Lost the connection listening to the changes, reconnecting in {}.", RECONNECT_DELAY, e);
+                }
+            } finally {
+                if (listening) {
+                    listening = false;
+                    // Changes may be missed until the listener is back.
+                    subscribers.forEach(Subscriber::drop);
+                }
+            }
+            try {
+                Thread.sleep(RECONNECT_DELAY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static long readWatermark(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private void dispatch(String payload) {
+        ChangeEvent change;
+        try {
+            change = objectMapper.readValue(payload, ChangeEvent.class);
+        } catch (JsonProcessingException e) {
+            LOGGER.warn("Ignored the malformed change {}.", payload, e);
+            return;
+        }
+        subscribers.forEach(subscriber -> subscriber.offer(change));
+    }
+
+    /**
+     * A client and the events waiting to be sent to it. Events are sent by at most one task at a time.
+     */
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+        // Guarded by this.
+        private final Deque<ChangeEvent> buffer = new ArrayDeque<>();
+        private Long readyToken;
+        private Long resyncToken;
+        private boolean heartbeat;
+        private boolean sending;
+        private boolean closed;
+        // The client has every change up to lastToken, and some after.
+        private long lastToken;
+        // Token lastToken moves to once the changes buffered before it was taken are sent.
+        private Long checkpoint;
+        private int sendsBeforeCheckpoint;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized void start(long token) {
+            readyToken = token;
+            lastToken = token;
+            send();
+        }
+
+        synchronized void resync(long token) {
+            lastToken = token;
+            drop();
+        }
+
+        synchronized void offer(ChangeEvent change) {
+            if (closed || resyncToken != null) {
+                return;
+            }
+            if (buffer.size() >= bufferSize) {
+                drop();
+                return;
+            }
+            buffer.add(change);
+            send();
+        }
+
+        /**
+         * Sends a heartbeat and moves the token to the given one once the changes buffered now are sent.
+         * The transactions after the ready token started after the subscription, so their changes were all offered.
+         * @param token
+         */
+        synchronized void heartbeat(long token) {
+            if (token > lastToken) {
+                checkpoint = token;
+                sendsBeforeCheckpoint = buffer.size();
+                advance();
+            }
+            heartbeat = true;
+            send();
+        }
+
+        private void advance() {
+            if (checkpoint != null && sendsBeforeCheckpoint == 0) {
+                lastToken = Math.max(lastToken, checkpoint);
+                checkpoint = null;
+            }
+        }
+
+        /**
+         * Drops the buffered changes and ends the subscription with a token covering them.
+         */
+        synchronized void drop() {
+            if (closed || resyncToken != null) {
+                return;
+            }
+            buffer.clear();
+            resyncToken = lastToken;
+            resyncs.increment();
+            send();
+        }
+
+        /**
+         * Starts a task sending the waiting events, unless one is running.
+         */
+        private void send() {
+            if (!sending && !closed) {
+                sending = true;
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                SseEventBuilder event;
+                boolean last = false;
+                synchronized (this) {
+                    if (readyToken != null) {
+                        event = SseEmitter.event().name(EVENT_READY).id(readyToken.toString()).data(readyToken.toString());
+                        readyToken = null;
+                    } else if (resyncToken != null) {
+                        event = SseEmitter.event().name(EVENT_RESYNC).data(resyncToken.toString());
+                        last = true;
+                    } else if (!buffer.isEmpty()) {
+                        ChangeEvent change = buffer.poll();
+                        event = SseEmitter.event().name(EVENT_CHANGE).id(Long.toString(lastToken)).data(change, MediaType.APPLICATION_JSON);
+                        if (checkpoint != null) {
+                            sendsBeforeCheckpoint--;
+                            advance();
+                        }
+                    } else if (heartbeat) {
+                        event = SseEmitter.event().comment("");
+                        heartbeat = false;
+                    } else {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away, the emitter callbacks unsubscribe it.
+                    close();
+                    return;
+                }
+                if (last) {
+                    close();
+                    emitter.complete();
+                    return;
+                }
+            }
+        }
+
+        private synchronized void close() {
+            closed = true;
+            sending = false;
+            buffer.clear();
+            subscribers.remove(this);
+        }
+    }
+}
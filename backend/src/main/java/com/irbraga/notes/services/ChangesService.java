@@ -0,0 +1,184 @@
+package com.irbraga.notes.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.irbraga.notes.dto.ChangesDto;
+import com.irbraga.notes.dto.Tombstone;
+import com.irbraga.notes.entities.ChangeEntity;
+import com.irbraga.notes.entities.NoteEntity;
+import com.irbraga.notes.entities.TagEntity;
+import com.irbraga.notes.mappers.NotesMapper;
+import com.irbraga.notes.mappers.TagsMapper;
+import com.irbraga.notes.repositories.ChangesRepository;
+import com.irbraga.notes.repositories.NotesRepository;
+import com.irbraga.notes.repositories.TagsRepository;
+
+/**
+ * Builds the pages of the change feed used by offline clients to catch up.
+ *
+ * Change IDs come from a sequence and are handed out in allocation order, not commit order:
+ * a transaction still running may commit later with a lower ID than a change already read.
+ * So the changes are read in the order of the transactions that wrote them, and only those
+ * of the transactions older than the oldest one still running (the watermark), which are final.
+ * The sync token is the last transaction a client has all the changes of.
+ */
+@Service
+public class ChangesService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangesService.class);
+
+    @Autowired
+    private ChangesRepository changesRepository;
+    @Autowired
+    private NotesRepository notesRepository;
+    @Autowired
+    private TagsRepository tagsRepository;
+    @Autowired
+    private NotesMapper notesMapper;
+    @Autowired
+    private TagsMapper tagsMapper;
+
+    @Value("${notes.changes.retention-days:30}")
+    private int retentionDays;
+
+    /**
+     * Token of the latest changes. Clients take it before a full download and sync from it afterwards.
+     * @return
+     */
+    public String currentToken() {
+        return Long.toString(changesRepository.findWatermark() - 1);
+    }
+
+    /**
+     * Token covering every transaction started so far, the live events are pushed from it.
+     * Its changes are only all in the feed once those transactions end.
+     * @return
+     */
+    public long liveToken() {
+        return changesRepository.findNextXactId() - 1;
+    }
+
+    /**
+     * Committed changes after the given token, in transaction order. At most limit changes,
+     * unless the last transaction has more: a transaction is never split across batches.
+     * @param since
+     * @param limit
+     * @return
+     */
+    @Transactional(readOnly = true)
+    public Batch committedChangesSince(long since, int limit) {
+        long watermark = changesRepository.findWatermark();
+        List<ChangeEntity> changes = changesRepository.findByXactIdGreaterThanAndXactIdLessThanOrderByXactIdAscIdAsc(since, watermark, Limit.of(limit + 1));
+        if (changes.size() <= limit) {
+            // Every transaction before the watermark was read, the next batch starts from there.
+            return new Batch(changes, Math.max(since, watermark - 1), false);
+        }
+        changes = new ArrayList<>(changes.subList(0, limit));
+        ChangeEntity last = changes.get(limit - 1);
+        changes.addAll(changesRepository.findByXactIdAndIdGreaterThanOrderByIdAsc(last.getXactId(), last.getId()));
+        return new Batch(changes, last.getXactId(), changesRepository.existsByXactIdGreaterThanAndXactIdLessThan(last.getXactId(), watermark));
+    }
+
+    /**
+     * Changes made after the given token, at most limit changes unless the last transaction has more.
+     * Several changes of the same entity are reported once, with its latest state.
+     * @param since
+     * @param limit
+     * @return empty when the changes after the token were already pruned, the client must download everything again.
+     */
+    @Transactional(readOnly = true)
+    public Optional<ChangesDto> changesSince(long since, int limit) {
+        if (since < changesRepository.findPrunedThrough()) {
+            return Optional.empty();
+        }
+
+        Batch batch = committedChangesSince(since, limit);
+        List<ChangeEntity> changes = batch.changes();
+
+        // Latest change of each entity, in the order they happened.
+        Map<String, ChangeEntity> latest = new LinkedHashMap<>();
+        for (ChangeEntity change : changes) {
+            String key = change.getEntityType() + ":" + change.getEntityId() + ":" + change.getRelatedId();
+            latest.remove(key);
+            latest.put(key, change);
+        }
+
+        Set<UUID> noteIds = new LinkedHashSet<>();
+        Set<UUID> deletedNoteIds = new HashSet<>();
+        Set<UUID> tagIds = new LinkedHashSet<>();
+        List<Tombstone> deleted = new ArrayList<>();
+        for (ChangeEntity change : latest.values()) {
+            boolean isDelete = ChangeEntity.OPERATION_DELETE.equals(change.getOperation());
+            switch (change.getEntityType()) {
+                case ChangeEntity.TYPE_NOTE -> {
+                    if (isDelete) {
+                        deletedNoteIds.add(change.getEntityId());
+                    } else {
+                        noteIds.add(change.getEntityId());
+                    }
+                }
+                case ChangeEntity.TYPE_TAG -> {
+                    if (isDelete) {
+                        deleted.add(new Tombstone(ChangeEntity.TYPE_TAG, change.getEntityId(), null));
+                    } else {
+                        tagIds.add(change.getEntityId());
+                    }
+                }
+                case ChangeEntity.TYPE_NOTE_TAG -> {
+                    if (isDelete) {
+                        deleted.add(new Tombstone(ChangeEntity.TYPE_NOTE_TAG, change.getEntityId(), change.getRelatedId()));
+                    }
+                    // The tags of the note changed, clients also get its current state.
+                    noteIds.add(change.getEntityId());
+                }
+                default -> LOGGER.warn("Unknown change type {}.", change.getEntityType());
+            }
+        }
+        // The links of a deleted note go with it.
+        noteIds.removeAll(deletedNoteIds);
+        deleted.removeIf(tombstone -> deletedNoteIds.contains(tombstone.id()));
+        deletedNoteIds.forEach(id -> deleted.add(new Tombstone(ChangeEntity.TYPE_NOTE, id, null)));
+
+        List<NoteEntity> notes = noteIds.isEmpty() ? List.of() : notesRepository.findByIdIn(noteIds);
+        List<TagEntity> tags = tagIds.isEmpty() ? List.of() : tagsRepository.findAllById(tagIds);
+        return Optional.of(new ChangesDto(notesMapper.toResponse(notes), tagsMapper.toResponse(tags), deleted,
+                                          Long.toString(batch.nextToken()), batch.hasMore()));
+    }
+
+    /**
+     * Deletes the changes older than the retention, clients with an older token must download everything again.
+     */
+    @Scheduled(cron = "${notes.changes.prune-cron:0 0 3 * * *}")
+    @Transactional
+    public void prune() {
+        Date before = Date.from(Instant.now().minus(Duration.ofDays(retentionDays)));
+        changesRepository.updatePrunedThrough(before);
+        int deleted = changesRepository.deleteByChangedAtBefore(before);
+        LOGGER.info("Pruned {} changes older than {}.", deleted, before);
+    }
+
+    /**
+     * Changes read from the feed, the token to read the next ones from and whether there are more already.
+     */
+    public record Batch(List<ChangeEntity> changes, long nextToken, boolean hasMore) {}
+}
@@ -0,0 +1,124 @@
+package com.irbraga.notes.services;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.irbraga.notes.config.CacheConfig;
+import com.irbraga.notes.dto.NoteTagBatchResult;
+import com.irbraga.notes.dto.NoteTagDto;
+
+/**
+ * Adds and removes tags of notes straight on the notes_tags table, without loading the notes.
+ *
+ * Any number of pairs is applied with one statement per direction: the pairs are passed as two
+ * arrays, links already in the wanted state are skipped, and the updated_at of the notes that
+ * changed is bumped in the same statement (the ETag of a note depends on it). Once committed, the
+ * changes are applied to the tag index, without waiting for it to read them from the change feed.
+ */
+@Service
+public class NoteTagsService {
+
+    // Max number of pairs added, or removed, by a single batch.
+    public static final int MAX_BATCH_SIZE = 10_000;
+
+    private static final String ADD = "WITH added AS ("
+            + "  INSERT INTO notes_tags (note_id, tag_id) "
+            + "  SELECT p.note_id, p.tag_id FROM unnest(?, ?) AS p(note_id, tag_id) "
+            + "  WHERE EXISTS (SELECT 1 FROM notes n WHERE n.note_id = p.note_id) "
+            + "    AND EXISTS (SELECT 1 FROM tags t WHERE t.tag_id = p.tag_id) "
+            + "  ON CONFLICT DO NOTHING RETURNING note_id, tag_id), "
+            + "touched AS (UPDATE notes SET updated_at = now() WHERE note_id IN (SELECT note_id FROM added)) "
+            + "SELECT note_id, tag_id FROM added";
+    private static final String REMOVE = "WITH removed AS ("
+            + "  DELETE FROM notes_tags nt USING unnest(?, ?) AS p(note_id, tag_id) "
+            + "  WHERE nt.note_id = p.note_id AND nt.tag_id = p.tag_id RETURNING nt.note_id, nt.tag_id), "
+            + "touched AS (UPDATE notes SET updated_at = now() WHERE note_id IN (SELECT note_id FROM removed)) "
+            + "SELECT note_id, tag_id FROM removed";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private TagIndex tagIndex;
+
+    /**
+     * Adds a tag to a note.
+     * @param noteId
+     * @param tagId
+     * @return false when the note already had the tag, or when the note or the tag does not exist.
+     */
+    public boolean add(UUID noteId, UUID tagId) {
+        return apply(List.of(new NoteTagDto(noteId, tagId)), List.of()).added() > 0;
+    }
+
+    /**
+     * Removes a tag from a note.
+     * @param noteId
+     * @param tagId
+     * @return false when the note did not have the tag.
+     */
+    public boolean remove(UUID noteId, UUID tagId) {
+        return apply(List.of(), List.of(new NoteTagDto(noteId, tagId))).removed() > 0;
+    }
+
+    /**
+     * Adds and removes tags in one transaction, the additions first.
+     * @param add
+     * @param remove
+     * @return
+     */
+    public NoteTagBatchResult apply(List<NoteTagDto> add, List<NoteTagDto> remove) {
+        List<NoteTagDto> added = new ArrayList<>();
+        List<NoteTagDto> removed = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!add.isEmpty()) {
+                added.addAll(execute(ADD, add));
+            }
+            if (!remove.isEmpty()) {
+                removed.addAll(execute(REMOVE, remove));
+            }
+        });
+
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            Cache notes = cacheManager.getCache(CacheConfig.NOTES);
+            added.forEach(link -> notes.evict(link.noteId()));
+            removed.forEach(link -> notes.evict(link.noteId()));
+            cacheManager.getCache(CacheConfig.NOTES_BY_TAG).clear();
+            tagIndex.applyLinks(added, removed);
+        }
+        return new NoteTagBatchResult(added.size(), removed.size());
+    }
+
+    /**
+     * Runs ADD or REMOVE with the pairs as two uuid arrays.
+     * @param sql
+     * @param pairs
+     * @return the pairs actually changed.
+     */
+    private List<NoteTagDto> execute(String sql, List<NoteTagDto> pairs) {
+        return jdbcTemplate.query(sql,
+                statement -> {
+                    statement.setArray(1, uuids(statement, pairs.stream().map(NoteTagDto::noteId).toArray()));
+                    statement.setArray(2, uuids(statement, pairs.stream().map(NoteTagDto::tagId).toArray()));
+                },
+                (row, i) -> new NoteTagDto(row.getObject("note_id", UUID.class), row.getObject("tag_id", UUID.class)));
+    }
+
+    private static Array uuids(PreparedStatement statement, Object[] values) throws SQLException {
+        return statement.getConnection().createArrayOf("uuid", values);
+    }
+}
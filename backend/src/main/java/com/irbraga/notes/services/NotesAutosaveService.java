@@ -0,0 +1,355 @@
+package com.irbraga.notes.services;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.irbraga.notes.config.CacheConfig;
+import com.irbraga.notes.dto.CollectionVersion;
+import com.irbraga.notes.dto.NotePatchDto;
+import com.irbraga.notes.dto.NoteReturnObject;
+import com.irbraga.notes.dto.NoteSummaryReturnObject;
+import com.irbraga.notes.entities.NoteSummaryEntity;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind buffer of the PATCH endpoint, which editors call while the user types.
+ *
+ * Patches are merged per note in memory and written with one JDBC batch every flush interval,
+ * or as soon as max-pending notes are waiting, so a burst of edits costs a single UPDATE per note.
+ * Every accepted patch increments the version of the note; the UPDATE only applies when the row
+ * still has the version the patches were made on, otherwise they are dropped.
+ *
+ * The read endpoints overlay the pending patches on the stored notes. The streaming export,
+ * the search and the change feed read the stored rows, at most one flush interval behind.
+ * Pending patches of a note are flushed before it is replaced (PUT), and all of them on shutdown.
+ */
+@Service
+public class NotesAutosaveService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotesAutosaveService.class);
+
+    private static final String UPDATE = "UPDATE notes SET title = coalesce(?, title), body = coalesce(?, body), color = coalesce(?, color), "
+            + "version = ?, updated_at = ? WHERE note_id = ? AND version = ?";
+
+    // Merged patches by note ID, replaced as a whole on every change.
+    private final Map<UUID, PendingPatch> pending = new ConcurrentHashMap<>();
+    // A note is written by a single flush at a time.
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${notes.autosave.max-pending:500}")
+    private int maxPending;
+
+    /**
+     * Merges a patch into the pending changes of a note.
+     * @param stored the note as stored, without its pending changes.
+     * @param dto
+     * @return the note with all its pending changes, empty when the patch was made on another version.
+     * @throws IllegalArgumentException when the patch leaves both title and body empty.
+     */
+    public Optional<NoteReturnObject> patch(NoteReturnObject stored, NotePatchDto dto) {
+        boolean[] applied = new boolean[1];
+        PendingPatch merged = pending.compute(stored.id(), (id, current) -> {
+            // A patch already written has the version of the stored note.
+            PendingPatch base = current != null && current.version() > stored.version() ? current : PendingPatch.of(stored);
+            if (base.version() != dto.version()) {
+                return current;
+            }
+            PendingPatch next = base.merge(dto, new Timestamp(System.currentTimeMillis()));
+            NoteReturnObject note = next.apply(stored);
+            if (isBlank(note.title()) && isBlank(note.body())) {
+                throw new IllegalArgumentException("Inform either title or body.");
+            }
+            applied[0] = true;
+            return next;
+        });
+        if (!applied[0]) {
+            return Optional.empty();
+        }
+        if (pending.size() >= maxPending) {
+            flush();
+        }
+        return Optional.of(merged.apply(stored));
+    }
+
+    /**
+     * The note with its pending changes.
+     * @param note
+     * @return
+     */
+    public NoteReturnObject overlay(NoteReturnObject note) {
+        PendingPatch patch = pending.get(note.id());
+        return patch == null ? note : patch.apply(note);
+    }
+
+    /**
+     * The notes with their pending changes.
+     * @param notes
+     * @return
+     */
+    public List<NoteReturnObject> overlay(List<NoteReturnObject> notes) {
+        if (pending.isEmpty()) {
+            return notes;
+        }
+        return notes.stream().map(this::overlay).toList();
+    }
+
+    /**
+     * The summary of a note with its pending changes.
+     * @param note
+     * @return
+     */
+    public NoteSummaryReturnObject overlay(NoteSummaryReturnObject note) {
+        PendingPatch patch = pending.get(note.id());
+        return patch == null ? note : patch.apply(note);
+    }
+
+    /**
+     * The summaries of notes with their pending changes.
+     * @param notes
+     * @return
+     */
+    public List<NoteSummaryReturnObject> overlaySummaries(List<NoteSummaryReturnObject> notes) {
+        if (pending.isEmpty()) {
+            return notes;
+        }
+        return notes.stream().map(this::overlay).toList();
+    }
+
+    /**
+     * IDs of the notes having changes not written yet.
+     * @return
+     */
+    public Set<UUID> pendingIds() {
+        return Set.copyOf(pending.keySet());
+    }
+
+    /**
+     * Version of the changes not written yet of the given notes, which the versions of the stored notes do not cover.
+     * Its count is the sum of the versions of the notes, so every accepted patch changes it.
+     * @param ids
+     * @return
+     */
+    public CollectionVersion pendingVersion(Collection<UUID> ids) {
+        long versions = 0;
+        Date lastUpdated = null;
+        for (UUID id : ids) {
+            PendingPatch patch = pending.get(id);
+            if (patch != null) {
+                versions += patch.version();
+                if (lastUpdated == null || patch.updatedAt().after(lastUpdated)) {
+                    lastUpdated = patch.updatedAt();
+                }
+            }
+        }
+        return new CollectionVersion(versions, lastUpdated);
+    }
+
+    /**
+     * Whether a note has changes not written yet.
+     * @param uuid
+     * @return
+     */
+    public boolean hasPending(UUID uuid) {
+        return pending.containsKey(uuid);
+    }
+
+    /**
+     * Drops the pending changes of a note, when it is deleted.
+     * @param uuid
+     */
+    public void discard(UUID uuid) {
+        pending.remove(uuid);
+    }
+
+    /**
+     * Writes the pending changes of a note.
+     * @param uuid
+     */
+    public void flush(UUID uuid) {
+        flushLock.lock();
+        try {
+            PendingPatch patch = pending.get(uuid);
+            if (patch != null) {
+                write(List.of(patch));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes all pending changes, one UPDATE per note in a single batch.
+     */
+    @Scheduled(fixedDelayString = "${notes.autosave.flush-interval:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<PendingPatch> patches = List.copyOf(pending.values());
+            if (!patches.isEmpty()) {
+                write(patches);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Pending changes must not be lost when the application stops.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        if (!pending.isEmpty()) {
+            LOGGER.error("{} notes have changes that could not be written", pending.size());
+        }
+    }
+
+    /**
+     * Writes patches in one transaction. When the batch fails each patch is written on its own:
+     * a patch the database rejects is dropped, the others stay pending until the next flush.
+     * @param patches
+     */
+    private void write(List<PendingPatch> patches) {
+        try {
+            int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    patches.get(i).bind(statement);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return patches.size();
+                }
+            }));
+            for (int i = 0; i < patches.size(); i++) {
+                written(patches.get(i), counts[i] > 0);
+            }
+        } catch (DataAccessException e) {
+            if (patches.size() == 1) {
+                if (e instanceof DataIntegrityViolationException) {
+                    LOGGER.warn("Dropped the changes of note {}, rejected by the database", patches.get(0).id(), e);
+                    pending.remove(patches.get(0).id(), patches.get(0));
+                } else {
+                    LOGGER.warn("Could not write the changes of note {}, retrying on the next flush", patches.get(0).id(), e);
+                }
+                return;
+            }
+            patches.forEach(patch -> write(List.of(patch)));
+        }
+        cacheManager.getCache(CacheConfig.NOTES_BY_TAG).clear();
+    }
+
+    /**
+     * Removes a written patch, or rebases the changes merged while it was written.
+     * @param patch
+     * @param updated false when the note was changed by another writer or deleted.
+     */
+    private void written(PendingPatch patch, boolean updated) {
+        Cache notes = cacheManager.getCache(CacheConfig.NOTES);
+        notes.evict(patch.id());
+        if (updated) {
+            pending.computeIfPresent(patch.id(), (id, current) -> current == patch ? null : current.rebase(patch.version()));
+        } else {
+            LOGGER.warn("Dropped the changes of note {}, it was changed or deleted since version {}", patch.id(), patch.baseVersion());
+            pending.computeIfPresent(patch.id(), (id, current) -> current.baseVersion() == patch.baseVersion() ? null : current);
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    /**
+     * Merged changes of a note.
+     * @param id
+     * @param title null when unchanged.
+     * @param body null when unchanged.
+     * @param color null when unchanged.
+     * @param baseVersion stored version the changes were made on.
+     * @param version version of the note with the changes.
+     * @param updatedAt time of the last change.
+     */
+    private record PendingPatch(UUID id, String title, String body, String color, long baseVersion, long version, Timestamp updatedAt) {
+
+        static PendingPatch of(NoteReturnObject stored) {
+            return new PendingPatch(stored.id(), null, null, null, stored.version(), stored.version(), null);
+        }
+
+        PendingPatch merge(NotePatchDto dto, Timestamp now) {
+            return new PendingPatch(id,
+                                    dto.title() != null ? dto.title() : title,
+                                    dto.body() != null ? dto.body() : body,
+                                    dto.color() != null ? dto.color() : color,
+                                    baseVersion, version + 1, now);
+        }
+
+        PendingPatch rebase(long storedVersion) {
+            return new PendingPatch(id, title, body, color, storedVersion, version, updatedAt);
+        }
+
+        NoteReturnObject apply(NoteReturnObject note) {
+            if (note.version() >= version) {
+                return note;
+            }
+            return new NoteReturnObject(note.id(),
+                                        title != null ? title : note.title(),
+                                        body != null ? body : note.body(),
+                                        color != null ? color : note.color(),
+                                        note.createdAt(), updatedAt, version, note.tags());
+        }
+
+        NoteSummaryReturnObject apply(NoteSummaryReturnObject note) {
+            if (note.version() >= version) {
+                return note;
+            }
+            return new NoteSummaryReturnObject(note.id(),
+                                               title != null ? title : note.title(),
+                                               body != null ? NoteSummaryEntity.excerpt(body) : note.excerpt(),
+                                               color != null ? color : note.color(),
+                                               note.createdAt(), updatedAt, version, note.tags());
+        }
+
+        void bind(PreparedStatement statement) throws SQLException {
+            statement.setString(1, title);
+            statement.setString(2, body);
+            statement.setString(3, color);
+            statement.setLong(4, version);
+            statement.setTimestamp(5, updatedAt);
+            statement.setObject(6, id);
+            statement.setLong(7, baseVersion);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.irbraga.notes.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.hibernate.id.uuid.CustomVersionOneStrategy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.irbraga.notes.config.CacheConfig;
+import com.irbraga.notes.dto.BulkItemResult;
+import com.irbraga.notes.dto.NoteImportDto;
+import com.irbraga.notes.dto.TagDto;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Imports notes in bulk from newline delimited JSON.
+ * Valid notes are inserted with JDBC batches, one transaction per batch, and their tags
+ * are created when missing and linked in the same batch. A batch the database rejects is
+ * inserted again note by note, so one bad note does not fail the others.
+ */
+@Service
+public class NotesBulkService {
+
+    // Number of notes inserted per batch and per transaction.
+    public static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_NOTE = "INSERT INTO notes (note_id, title, body, color) VALUES (?, ?, ?, coalesce(?, '#FFFFFF'))";
+    private static final String INSERT_TAG = "INSERT INTO tags (tag_id, name) VALUES (?, ?) ON CONFLICT DO NOTHING";
+    private static final String SELECT_TAGS = "SELECT tag_id, name FROM tags WHERE trim(both from lower(name)) = ANY(?)";
+    // All the links of a batch in one statement: the note count trigger then locks the tags once, in tag_id order,
+    // one statement per link would lock them in link order and concurrent imports sharing tags would deadlock.
+    private static final String INSERT_LINKS = "INSERT INTO notes_tags (note_id, tag_id) SELECT * FROM unnest(?, ?) ON CONFLICT DO NOTHING";
+    // Same time based IDs as NoteEntity's generator, so the imported rows land at the end of the primary key indexes too.
+    private static final CustomVersionOneStrategy IDS = new CustomVersionOneStrategy();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private Validator validator;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private TagSuggestIndex tagSuggestIndex;
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * Reads one note per line and writes one result per non blank line, as newline delimited JSON.
+     * Invalid lines are reported right away, the others once their batch is committed.
+     * @param input
+     * @param output
+     * @throws IOException
+     */
+    public void importNdjson(InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        try (SequenceWriter writer = objectMapper.writer()
+                                                 .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                                                 .withRootValueSeparator("\n")
+                                                 .writeValues(output)) {
+            List<Item> batch = new ArrayList<>(BATCH_SIZE);
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                NoteImportDto dto;
+                try {
+                    dto = objectMapper.readValue(line, NoteImportDto.class);
+                } catch (JsonProcessingException e) {
+                    writer.write(BulkItemResult.invalid(lineNumber, List.of("Malformed JSON: " + e.getOriginalMessage())));
+                    continue;
+                }
+                List<String> errors = validate(dto);
+                if (!errors.isEmpty()) {
+                    writer.write(BulkItemResult.invalid(lineNumber, errors));
+                    continue;
+                }
+                batch.add(new Item(lineNumber, IDS.generateUuid(null), dto));
+                if (batch.size() == BATCH_SIZE) {
+                    writer.writeAll(insert(batch));
+                    writer.flush();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writer.writeAll(insert(batch));
+            }
+            writer.flush();
+            if (lineNumber > 0) {
+                output.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Same validation as the single note endpoints.
+     * @param dto
+     * @return the error messages.
+     */
+    private List<String> validate(NoteImportDto dto) {
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<?> violation : validator.validate(dto.toNoteDto())) {
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        List<String> tags = dto.tagsOrEmpty();
+        for (int i = 0; i < tags.size(); i++) {
+            for (ConstraintViolation<?> violation : validator.validate(new TagDto(tags.get(i)))) {
+                errors.add("tags[" + i + "]: " + violation.getMessage());
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Inserts a batch of notes, their missing tags and their tag links in one transaction.
+     * When the batch fails, its notes are inserted again one per transaction, so only the failing ones are reported.
+     * @param batch
+     * @return
+     */
+    private List<BulkItemResult> insert(List<Item> batch) {
+        Map<UUID, String> tags = new HashMap<>();
+        List<BulkItemResult> results;
+        try {
+            tags.putAll(write(batch));
+            results = batch.stream().map(item -> BulkItemResult.created(item.line(), item.id())).toList();
+        } catch (DataAccessException e) {
+            if (batch.size() == 1) {
+                return List.of(BulkItemResult.failed(batch.get(0).line(), e.getMostSpecificCause().getMessage()));
+            }
+            results = new ArrayList<>(batch.size());
+            for (Item item : batch) {
+                try {
+                    tags.putAll(write(List.of(item)));
+                    results.add(BulkItemResult.created(item.line(), item.id()));
+                } catch (DataAccessException itemError) {
+                    results.add(BulkItemResult.failed(item.line(), itemError.getMostSpecificCause().getMessage()));
+                }
+            }
+        }
+
+        if (results.stream().anyMatch(result -> result.status() == BulkItemResult.Status.CREATED)) {
+            // The notes are new, only the lists may hold stale entries.
+            cacheManager.getCache(CacheConfig.NOTES_BY_TAG).clear();
+            cacheManager.getCache(CacheConfig.TAG_LIST).clear();
+        }
+        if (!tags.isEmpty()) {
+            tagSuggestIndex.putAll(tags);
+        }
+        return results;
+    }
+
+    /**
+     * Inserts notes, their missing tags and their tag links in one transaction.
+     * @param items
+     * @return the tags of the notes, by ID.
+     */
+    private Map<UUID, String> write(List<Item> items) {
+        // Sorted, concurrent imports creating the same tags wait on each other in the same order instead of deadlocking.
+        Map<String, String> names = new TreeMap<>();
+        for (Item item : items) {
+            item.dto().tagsOrEmpty().forEach(name -> names.putIfAbsent(normalize(name), name.trim()));
+        }
+
+        Map<UUID, String> tags = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_NOTE, items.stream()
+                    .map(item -> new Object[] {item.id(), item.dto().title(), item.dto().body(), item.dto().color()})
+                    .toList());
+            if (names.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate(INSERT_TAG, names.values().stream()
+                    .map(name -> new Object[] {IDS.generateUuid(null), name})
+                    .toList());
+            Map<String, UUID> tagIds = new HashMap<>();
+            jdbcTemplate.query(SELECT_TAGS,
+                    statement -> statement.setArray(1, statement.getConnection().createArrayOf("text", names.keySet().toArray())),
+                    row -> {
+                        tagIds.put(normalize(row.getString("name")), row.getObject("tag_id", UUID.class));
+                        tags.put(row.getObject("tag_id", UUID.class), row.getString("name"));
+                    });
+            List<Object[]> links = new ArrayList<>();
+            for (Item item : items) {
+                item.dto().tagsOrEmpty().stream()
+                        .map(name -> tagIds.get(normalize(name)))
+                        .filter(Objects::nonNull)
+                        .distinct()
+                        .forEach(tagId -> links.add(new Object[] {item.id(), tagId}));
+            }
+            if (!links.isEmpty()) {
+                jdbcTemplate.update(INSERT_LINKS, statement -> {
+                    statement.setArray(1, statement.getConnection().createArrayOf("uuid", links.stream().map(link -> link[0]).toArray()));
+                    statement.setArray(2, statement.getConnection().createArrayOf("uuid", links.stream().map(link -> link[1]).toArray()));
+                });
+            }
+        });
+        return tags;
+    }
+
+    /**
+     * Same normalization as the tag_name_idx unique index.
+     * @param name
+     * @return
+     */
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Item(long line, UUID id, NoteImportDto dto) {}
+}
@@ -0,0 +1,123 @@
+package com.irbraga.notes.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.hibernate.Hibernate;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.irbraga.notes.entities.NoteEntity;
+import com.irbraga.notes.mappers.NotesMapper;
+import com.irbraga.notes.repositories.NotesRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Writes notes to an output stream as they are read from the database,
+ * so the memory used does not depend on the size of the notes table.
+ */
+@Service
+public class NotesStreamingService {
+
+    private static final String EXPORT_SQL = "COPY (SELECT n.note_id, n.title, n.body, n.color, n.created_at, n.updated_at, "
+            + "ARRAY(SELECT t.name FROM notes_tags nt JOIN tags t ON t.tag_id = nt.tag_id WHERE nt.note_id = n.note_id ORDER BY t.name) AS tags "
+            + "FROM notes n ORDER BY n.created_at, n.note_id) TO STDOUT WITH (FORMAT csv, HEADER)";
+
+    @Autowired
+    private NotesRepository notesRepository;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private NotesMapper notesMapper;
+
+    /**
+     * Writes every note as newline delimited JSON.
+     * @param output
+     */
+    @Transactional(readOnly = true)
+    public void writeNdjson(OutputStream output) {
+        try (Stream<NoteEntity> notes = notesRepository.streamAll();
+             SequenceWriter writer = objectMapper.writer()
+                                                 .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                                                 .withRootValueSeparator("\n")
+                                                 .writeValues(output)) {
+            boolean written = false;
+            List<NoteEntity> chunk = new ArrayList<>(NotesRepository.STREAM_FETCH_SIZE);
+            Iterator<NoteEntity> iterator = notes.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                // Not peeking at the next row here, it must not be loaded before the persistence context is cleared.
+                if (chunk.size() == NotesRepository.STREAM_FETCH_SIZE) {
+                    writeChunk(writer, chunk);
+                    written = true;
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeChunk(writer, chunk);
+                written = true;
+            }
+            writer.flush();
+            if (written) {
+                output.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes every note and the names of its tags as CSV, straight from a PostgreSQL COPY.
+     * No entity is created.
+     * @param output
+     */
+    @Transactional(readOnly = true)
+    public void writeCsv(OutputStream output) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            connection.unwrap(PGConnection.class).getCopyAPI().copyOut(EXPORT_SQL, output);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not export the notes.", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    /**
+     * Writes a chunk of notes and releases them from the persistence context.
+     * Initializing the tags of the first note batch loads the tags of the whole chunk in one query.
+     * @param writer
+     * @param chunk
+     * @throws IOException
+     */
+    private void writeChunk(SequenceWriter writer, List<NoteEntity> chunk) throws IOException {
+        Hibernate.initialize(chunk.get(0).getTags());
+        for (NoteEntity note : chunk) {
+            writer.write(notesMapper.toResponse(note));
+        }
+        writer.flush();
+        chunk.clear();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,464 @@
+package com.irbraga.notes.services;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.irbraga.notes.dto.NoteTagDto;
+import com.irbraga.notes.entities.ChangeEntity;
+import com.irbraga.notes.repositories.NotesRepository;
+
+/**
+ * In memory index of the notes of each tag, used to answer boolean tag filters
+ * ("all of A, B and none of C") with bitmap operations instead of SQL joins.
+ *
+ * Each note gets an ordinal, each tag a compressed bitmap of the ordinals of its notes.
+ * The index is built in the background when the application starts, then follows the change feed,
+ * so the writes of every instance and of plain SQL reach it within the refresh interval.
+ * The notes changed are reloaded with their current tags rather than replayed change by change.
+ * The tags added and removed through this instance are applied as soon as they are committed
+ * (see {@link #applyLinks}), so a client sees its own changes right away.
+ * Results are in creation order like the SQL filter, the creation date of every note is kept for it.
+ * Until it is ready {@link #query} returns empty and callers fall back to SQL.
+ */
+@Service
+public class TagIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TagIndex.class);
+
+    // Changes read from the feed at a time, and notes reloaded per query.
+    private static final int CHANGES_BATCH_SIZE = 1000;
+    private static final int NOTES_BATCH_SIZE = 1000;
+
+    @Autowired
+    private NotesRepository notesRepository;
+    @Autowired
+    private ChangesService changesService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Snapshot snapshot = new Snapshot();
+    // Sync token of the change feed the snapshot is current up to.
+    private long token;
+    private boolean ready = false;
+    // Notes whose tags were changed through this instance while the refresh was loading, the state it loaded may be older.
+    private final Set<UUID> touched = new HashSet<>();
+    // Notes to reload at the next refresh.
+    private final Set<UUID> recheck = new HashSet<>();
+
+    /**
+     * Builds the index without holding the application startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Thread thread = new Thread(this::rebuild, "tag-index-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Rebuilds the index from the database.
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            ready = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long start = System.currentTimeMillis();
+        Snapshot built = new Snapshot();
+        // Taken first, the changes after it are applied again by the refresh, which is harmless.
+        long builtToken = transactionTemplate.execute(status -> {
+            long since = Long.parseLong(changesService.currentToken());
+            try (Stream<Object[]> notes = notesRepository.streamCreationDates()) {
+                notes.forEach(note -> built.addNote((UUID) note[0], micros(note[1])));
+            }
+            try (Stream<Object[]> links = notesRepository.streamTagLinks()) {
+                links.forEach(link -> built.link((UUID) link[0], (UUID) link[1]));
+            }
+            return since;
+        });
+
+        lock.writeLock().lock();
+        try {
+            snapshot = built;
+            token = builtToken;
+            touched.clear();
+            recheck.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Tag index built with {} notes and {} tags in {} ms.", built.live.getCardinality(), built.tags.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Applies the changes made since the last refresh.
+     */
+    @Scheduled(fixedDelayString = "${notes.tags.index.refresh-interval:1000}")
+    public void refresh() {
+        Snapshot target;
+        long since;
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return;
+            }
+            target = snapshot;
+            since = token;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        boolean more = true;
+        while (more) {
+            long from = since;
+            Set<UUID> reload;
+            lock.writeLock().lock();
+            try {
+                if (snapshot != target) {
+                    // Rebuilt in the meantime.
+                    return;
+                }
+                touched.clear();
+                reload = Set.copyOf(recheck);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Update update = transactionTemplate.execute(status -> load(from, reload));
+            lock.writeLock().lock();
+            try {
+                if (snapshot != target) {
+                    return;
+                }
+                recheck.removeAll(reload);
+                if (!touched.isEmpty()) {
+                    // Their tags changed here after they were loaded: kept as they are, and loaded again next time.
+                    update.changed().stream().filter(touched::contains).forEach(recheck::add);
+                    update = update.without(touched);
+                }
+                target.update(update.changed(), update.existing(), update.links(), update.deletedTags());
+                token = update.nextToken();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            since = update.nextToken();
+            more = update.hasMore();
+        }
+    }
+
+    /**
+     * Applies the tags added to and removed from notes through this instance, once committed.
+     * The notes not in the index yet are loaded with all their tags.
+     * @param added
+     * @param removed
+     */
+    public void applyLinks(Collection<NoteTagDto> added, Collection<NoteTagDto> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        Set<UUID> unknown = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                // The build and the feed cover them.
+                return;
+            }
+            added.stream().map(NoteTagDto::noteId).filter(id -> !snapshot.ordinals.containsKey(id)).forEach(unknown::add);
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Object[]> notes = unknown.isEmpty() ? List.of() : notesRepository.findCreationDates(unknown);
+        List<Object[]> links = unknown.isEmpty() ? List.of() : notesRepository.findTagLinks(unknown);
+
+        lock.writeLock().lock();
+        try {
+            if (!ready) {
+                return;
+            }
+            notes.forEach(note -> snapshot.addNote((UUID) note[0], micros(note[1])));
+            links.forEach(link -> snapshot.link((UUID) link[0], (UUID) link[1]));
+            for (NoteTagDto link : added) {
+                snapshot.link(link.noteId(), link.tagId());
+                touched.add(link.noteId());
+            }
+            for (NoteTagDto link : removed) {
+                snapshot.unlink(link.noteId(), link.tagId());
+                touched.add(link.noteId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return ready;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * IDs of the notes having all the tags in all, at least one of any and none of none.
+     * Empty collections disable their condition.
+     * @param all
+     * @param any
+     * @param none
+     * @param limit
+     * @return the first note IDs ordered by creation date and ID, or empty if the index is not ready.
+     */
+    public Optional<List<UUID>> query(Collection<UUID> all, Collection<UUID> any, Collection<UUID> none, int limit) {
+        lock.readLock().lock();
+        try {
+            if (!ready) {
+                return Optional.empty();
+            }
+            return Optional.of(snapshot.query(all, any, none, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Creation date in microseconds, the precision of the column, to order the notes like the database does.
+     * @param createdAt
+     * @return
+     */
+    static long micros(Object createdAt) {
+        if (createdAt instanceof Timestamp timestamp) {
+            return Math.floorDiv(timestamp.getTime(), 1000) * 1_000_000 + timestamp.getNanos() / 1000;
+        }
+        return ((Date) createdAt).getTime() * 1000;
+    }
+
+    /**
+     * Reads a batch of changes and the current state of the notes they touched, and of the notes to reload.
+     * @param since
+     * @param reload
+     * @return
+     */
+    private Update load(long since, Set<UUID> reload) {
+        ChangesService.Batch batch = changesService.committedChangesSince(since, CHANGES_BATCH_SIZE);
+        Set<UUID> changed = new HashSet<>(reload);
+        Set<UUID> deletedTags = new HashSet<>();
+        for (ChangeEntity change : batch.changes()) {
+            switch (change.getEntityType()) {
+                case ChangeEntity.TYPE_NOTE, ChangeEntity.TYPE_NOTE_TAG -> changed.add(change.getEntityId());
+                case ChangeEntity.TYPE_TAG -> {
+                    if (ChangeEntity.OPERATION_DELETE.equals(change.getOperation())) {
+                        deletedTags.add(change.getEntityId());
+                    }
+                }
+                default -> LOGGER.warn("Unknown change type {}.", change.getEntityType());
+            }
+        }
+
+        List<Object[]> existing = new ArrayList<>();
+        List<Object[]> links = new ArrayList<>();
+        List<UUID> ids = new ArrayList<>(changed);
+        for (int i = 0; i < ids.size(); i += NOTES_BATCH_SIZE) {
+            List<UUID> chunk = ids.subList(i, Math.min(i + NOTES_BATCH_SIZE, ids.size()));
+            existing.addAll(notesRepository.findCreationDates(chunk));
+            links.addAll(notesRepository.findTagLinks(chunk));
+        }
+        return new Update(changed, existing, links, deletedTags, batch.nextToken(), batch.hasMore());
+    }
+
+    /**
+     * Notes changed by a batch of changes, the ones still existing (ID, creation date) with their current tag links,
+     * and the tags deleted.
+     */
+    private record Update(Set<UUID> changed, List<Object[]> existing, List<Object[]> links, Set<UUID> deletedTags,
+                          long nextToken, boolean hasMore) {
+
+        Update without(Set<UUID> notes) {
+            Set<UUID> kept = new HashSet<>(changed);
+            kept.removeAll(notes);
+            return new Update(kept,
+                              existing.stream().filter(note -> !notes.contains(note[0])).toList(),
+                              links.stream().filter(link -> !notes.contains(link[0])).toList(),
+                              deletedTags, nextToken, hasMore);
+        }
+    }
+
+    /**
+     * The data of the index.
+     */
+    private static class Snapshot {
+
+        private final Map<UUID, Integer> ordinals = new HashMap<>();
+        // Note of each ordinal, null for the free ones.
+        private final List<UUID> noteIds = new ArrayList<>();
+        // Creation date of the note of each ordinal, in microseconds.
+        private long[] createdAt = new long[1024];
+        private final RoaringBitmap live = new RoaringBitmap();
+        // Ordinals of the deleted notes, given to the next notes.
+        private final RoaringBitmap free = new RoaringBitmap();
+        private final Map<UUID, RoaringBitmap> tags = new HashMap<>();
+
+        private int ordinalOf(UUID noteId) {
+            return ordinals.computeIfAbsent(noteId, id -> {
+                if (!free.isEmpty()) {
+                    int ordinal = free.first();
+                    free.remove(ordinal);
+                    noteIds.set(ordinal, id);
+                    return ordinal;
+                }
+                noteIds.add(id);
+                if (noteIds.size() > createdAt.length) {
+                    createdAt = Arrays.copyOf(createdAt, createdAt.length * 2);
+                }
+                return noteIds.size() - 1;
+            });
+        }
+
+        private RoaringBitmap notesOf(UUID tagId) {
+            return tags.getOrDefault(tagId, new RoaringBitmap());
+        }
+
+        /**
+         * Order of the SQL filter: creation date, then ID compared as unsigned bytes like the uuid type.
+         */
+        private int compare(int left, int right) {
+            int result = Long.compare(createdAt[left], createdAt[right]);
+            if (result != 0) {
+                return result;
+            }
+            UUID leftId = noteIds.get(left);
+            UUID rightId = noteIds.get(right);
+            result = Long.compareUnsigned(leftId.getMostSignificantBits(), rightId.getMostSignificantBits());
+            return result != 0 ? result : Long.compareUnsigned(leftId.getLeastSignificantBits(), rightId.getLeastSignificantBits());
+        }
+
+        List<UUID> query(Collection<UUID> all, Collection<UUID> any, Collection<UUID> none, int limit) {
+            RoaringBitmap result = live.clone();
+            for (UUID tag : all) {
+                result.and(notesOf(tag));
+            }
+            if (!any.isEmpty()) {
+                RoaringBitmap union = new RoaringBitmap();
+                for (UUID tag : any) {
+                    union.or(notesOf(tag));
+                }
+                result.and(union);
+            }
+            for (UUID tag : none) {
+                result.andNot(notesOf(tag));
+            }
+
+            // Ordinals are not in creation order (they are reused), the first ones are kept in a max heap.
+            PriorityQueue<Integer> first = new PriorityQueue<>(Math.min(limit, result.getCardinality()) + 1, (left, right) -> compare(right, left));
+            PeekableIntIterator iterator = result.getIntIterator();
+            while (iterator.hasNext()) {
+                int ordinal = iterator.next();
+                if (first.size() < limit) {
+                    first.add(ordinal);
+                } else if (compare(ordinal, first.peek()) < 0) {
+                    first.poll();
+                    first.add(ordinal);
+                }
+            }
+            List<Integer> ordered = new ArrayList<>(first);
+            ordered.sort(this::compare);
+            return ordered.stream().map(noteIds::get).toList();
+        }
+
+        void addNote(UUID noteId, long created) {
+            int ordinal = ordinalOf(noteId);
+            createdAt[ordinal] = created;
+            live.add(ordinal);
+        }
+
+        /**
+         * Links a note in the index to a tag, the notes not in it yet are linked when they are added.
+         */
+        void link(UUID noteId, UUID tagId) {
+            Integer ordinal = ordinals.get(noteId);
+            if (ordinal != null) {
+                tags.computeIfAbsent(tagId, id -> new RoaringBitmap()).add(ordinal);
+            }
+        }
+
+        void unlink(UUID noteId, UUID tagId) {
+            Integer ordinal = ordinals.get(noteId);
+            RoaringBitmap notes = tags.get(tagId);
+            if (ordinal != null && notes != null) {
+                notes.remove(ordinal);
+                if (notes.isEmpty()) {
+                    tags.remove(tagId);
+                }
+            }
+        }
+
+        /**
+         * Replaces the changed notes with their current state: the existing ones with the given links,
+         * the others are removed from every tag and their ordinals freed.
+         * @param changed
+         * @param existing (ID, creation date) of the changed notes still existing.
+         * @param links
+         * @param deletedTags
+         */
+        void update(Collection<UUID> changed, Collection<Object[]> existing, Collection<Object[]> links, Collection<UUID> deletedTags) {
+            RoaringBitmap cleared = new RoaringBitmap();
+            for (UUID noteId : changed) {
+                Integer ordinal = ordinals.get(noteId);
+                if (ordinal != null) {
+                    cleared.add(ordinal);
+                }
+            }
+            deletedTags.forEach(tags::remove);
+            if (!cleared.isEmpty()) {
+                tags.values().removeIf(bitmap -> {
+                    bitmap.andNot(cleared);
+                    return bitmap.isEmpty();
+                });
+            }
+
+            Set<UUID> kept = new HashSet<>();
+            existing.forEach(note -> kept.add((UUID) note[0]));
+            for (UUID noteId : changed) {
+                if (!kept.contains(noteId)) {
+                    Integer ordinal = ordinals.remove(noteId);
+                    if (ordinal != null) {
+                        live.remove(ordinal);
+                        noteIds.set(ordinal, null);
+                        free.add(ordinal);
+                    }
+                }
+            }
+            existing.forEach(note -> addNote((UUID) note[0], micros(note[1])));
+            links.forEach(link -> link((UUID) link[0], (UUID) link[1]));
+        }
+    }
+}
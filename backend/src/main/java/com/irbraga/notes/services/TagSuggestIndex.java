@@ -0,0 +1,298 @@
+package com.irbraga.notes.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.irbraga.notes.dto.TagSuggestion;
+import com.irbraga.notes.repositories.TagsRepository;
+
+/**
+ * In memory index of the tag names, used to suggest tags while the user types.
+ *
+ * Names are kept lower-cased and sorted, so the tags starting with a prefix are a contiguous range
+ * found by binary search. A max segment tree over the note counts of the tags, in name order,
+ * gives the most used tags of any range in O(limit * log(tags)), however many tags match.
+ *
+ * Readers use an immutable snapshot without locking, every change publishes a new one (tag writes are rare).
+ * The index is built in the background when the application starts and kept current by the tag writes;
+ * the note counts are reloaded every refresh interval. Until it is ready {@link #suggest} returns empty
+ * and callers fall back to SQL.
+ */
+@Service
+public class TagSuggestIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TagSuggestIndex.class);
+
+    @Autowired
+    private TagsRepository tagsRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    // Current names, null until the index is built. Guarded by this.
+    private Names names;
+    // Changes made while the index is being rebuilt, replayed on the rebuilt names. Guarded by this.
+    private List<Consumer<Names>> pending;
+    private volatile Snapshot snapshot;
+
+    /**
+     * Builds the index without holding the application startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Thread thread = new Thread(this::rebuild, "tag-suggest-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Reloads the note counts, they are not maintained between reloads.
+     */
+    @Scheduled(fixedDelayString = "${notes.tags.suggest.refresh-interval:60000}", initialDelayString = "${notes.tags.suggest.refresh-interval:60000}")
+    public void refresh() {
+        if (snapshot != null) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the index from the database.
+     */
+    public void rebuild() {
+        rebuildLock.lock();
+        try {
+            synchronized (this) {
+                pending = new ArrayList<>();
+            }
+            long start = System.currentTimeMillis();
+            Names built = new Names();
+            // Read-write transaction so it runs on the primary, changes a replica has not replayed yet would not be replayed here.
+            built.load(transactionTemplate.execute(status -> tagsRepository.findAllSuggestions()));
+            synchronized (this) {
+                pending.forEach(change -> change.accept(built));
+                pending = null;
+                names = built;
+                snapshot = built.snapshot();
+            }
+            LOGGER.info("Tag suggestions index built with {} tags in {} ms.", built.byId.size(), System.currentTimeMillis() - start);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * Most used tags whose name starts with a prefix, ignoring case.
+     * @param prefix
+     * @param limit
+     * @return the tags by descending note count then name, or empty if the index is not ready.
+     */
+    public Optional<List<TagSuggestion>> suggest(String prefix, int limit) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return Optional.empty();
+        }
+        return Optional.of(current.top(normalizePrefix(prefix), limit));
+    }
+
+    public void put(UUID tagId, String name) {
+        apply(index -> index.put(tagId, name));
+    }
+
+    public void putAll(Map<UUID, String> tags) {
+        apply(index -> tags.forEach(index::put));
+    }
+
+    public void remove(UUID tagId) {
+        apply(index -> index.remove(tagId));
+    }
+
+    /**
+     * Applies a change and publishes a new snapshot, and queues it while the index is being rebuilt.
+     * @param change
+     */
+    private synchronized void apply(Consumer<Names> change) {
+        if (pending != null) {
+            pending.add(change);
+        }
+        if (names != null) {
+            change.accept(names);
+            snapshot = names.snapshot();
+        }
+    }
+
+    /**
+     * Same normalization as the tag_name_idx unique index.
+     * @param name
+     * @return
+     */
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Names may contain spaces, only the leading ones are ignored while the user types.
+     * @param prefix
+     * @return
+     */
+    public static String normalizePrefix(String prefix) {
+        return prefix.stripLeading().toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(UUID id, String name, String key, long noteCount) {}
+
+    // Name order, the ID only separates equal keys while a rename and a creation are applied.
+    private static final Comparator<Entry> ORDER = Comparator.comparing(Entry::key).thenComparing(Entry::id);
+
+    /**
+     * The tags in name order, changed in place. Changes are idempotent, so replaying them is safe.
+     */
+    private static class Names {
+
+        private final Map<UUID, Entry> byId = new HashMap<>();
+        private final List<Entry> sorted = new ArrayList<>();
+
+        void load(List<TagSuggestion> tags) {
+            for (TagSuggestion tag : tags) {
+                Entry entry = new Entry(tag.id(), tag.name(), normalize(tag.name()), tag.noteCount());
+                byId.put(tag.id(), entry);
+                sorted.add(entry);
+            }
+            sorted.sort(ORDER);
+        }
+
+        void put(UUID tagId, String name) {
+            Entry old = byId.get(tagId);
+            Entry entry = new Entry(tagId, name, normalize(name), old == null ? 0 : old.noteCount());
+            if (old != null) {
+                sorted.remove(Collections.binarySearch(sorted, old, ORDER));
+            }
+            byId.put(tagId, entry);
+            sorted.add(-Collections.binarySearch(sorted, entry, ORDER) - 1, entry);
+        }
+
+        void remove(UUID tagId) {
+            Entry old = byId.remove(tagId);
+            if (old != null) {
+                sorted.remove(Collections.binarySearch(sorted, old, ORDER));
+            }
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(sorted.toArray(Entry[]::new));
+        }
+    }
+
+    /**
+     * Immutable tags in name order, and a segment tree whose nodes hold the position of the most used tag below them.
+     */
+    private static class Snapshot {
+
+        private final Entry[] entries;
+        // Leaves from size on, padding leaves hold -1.
+        private final int[] tree;
+        private final int size;
+
+        Snapshot(Entry[] entries) {
+            this.entries = entries;
+            this.size = Integer.highestOneBit(Math.max(1, entries.length - 1)) << 1;
+            this.tree = new int[2 * size];
+            Arrays.fill(tree, size, 2 * size, -1);
+            for (int i = 0; i < entries.length; i++) {
+                tree[size + i] = i;
+            }
+            for (int node = size - 1; node > 0; node--) {
+                tree[node] = best(tree[2 * node], tree[2 * node + 1]);
+            }
+        }
+
+        /**
+         * The more used of two tags, the first in name order on ties.
+         */
+        private int best(int a, int b) {
+            if (a < 0 || b < 0) {
+                return Math.max(a, b);
+            }
+            return entries[b].noteCount() > entries[a].noteCount() ? b : a;
+        }
+
+        private int compareNodes(int a, int b) {
+            int countOrder = Long.compare(entries[tree[b]].noteCount(), entries[tree[a]].noteCount());
+            return countOrder != 0 ? countOrder : Integer.compare(tree[a], tree[b]);
+        }
+
+        List<TagSuggestion> top(String prefix, int limit) {
+            int from = lowerBound(prefix);
+            int to = lowerBound(prefix + Character.MAX_VALUE);
+            List<TagSuggestion> result = new ArrayList<>(Math.min(limit, to - from));
+            if (from == to) {
+                return result;
+            }
+            // Best-first search from the nodes covering [from, to), a node is expanded when its best tag is the next one.
+            PriorityQueue<Integer> queue = new PriorityQueue<>(this::compareNodes);
+            for (int left = from + size, right = to + size; left < right; left >>= 1, right >>= 1) {
+                if ((left & 1) == 1) {
+                    queue.add(left++);
+                }
+                if ((right & 1) == 1) {
+                    queue.add(--right);
+                }
+            }
+            while (!queue.isEmpty() && result.size() < limit) {
+                int node = queue.poll();
+                if (node >= size) {
+                    Entry entry = entries[tree[node]];
+                    result.add(new TagSuggestion(entry.id(), entry.name(), entry.noteCount()));
+                } else {
+                    for (int child = 2 * node; child <= 2 * node + 1; child++) {
+                        if (tree[child] >= 0) {
+                            queue.add(child);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Position of the first tag whose key is not lower than the given one.
+         */
+        private int lowerBound(String key) {
+            int low = 0;
+            int high = entries.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (entries[middle].key().compareTo(key) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.irbraga.notes.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.irbraga.notes.repositories.NotesRepository;
+import com.irbraga.notes.repositories.TagsRepository;
+import com.jayway.jsonpath.JsonPath;
+
+import jakarta.servlet.http.Cookie;
+
+/**
+ * Routes to a stand-in replica: the same database through its own pool, told apart by the application name.
+ * Its tags and notes tables are empty copies, the replica never gets the writes.
+ */
+@SpringBootTest(properties = {
+    "notes.datasource.replica.lag-check-interval=100",
+    "spring.datasource.hikari.minimum-idle=2",
+    "notes.datasource.replica.hikari.minimum-idle=2"
+})
+@AutoConfigureMockMvc
+@DirtiesContext
+class ReplicaRoutingTests {
+
+    private static final String URL = "jdbc:postgresql://localhost:5432/notes";
+    private static final String APPLICATION_NAME = "SELECT current_setting('application_name')";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ReplicaRoutingDataSource replicaDataSource;
+    @Autowired
+    private TagsRepository tagsRepository;
+    @Autowired
+    private NotesRepository notesRepository;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @DynamicPropertySource
+    static void staleReplica(DynamicPropertyRegistry registry) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "postgres", "postgres");
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS stale_replica CASCADE");
+            statement.execute("CREATE SCHEMA stale_replica");
+            statement.execute("CREATE TABLE stale_replica.tags (LIKE public.tags INCLUDING ALL)");
+            statement.execute("CREATE TABLE stale_replica.notes (LIKE public.notes INCLUDING ALL)");
+        }
+        registry.add("notes.datasource.replicas", () -> URL + "?ApplicationName=notes-replica&currentSchema=stale_replica,public");
+    }
+
+    @AfterAll
+    static void dropStaleReplica() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "postgres", "postgres");
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS stale_replica CASCADE");
+        }
+    }
+
+    @Test
+    void readsFromTheReplicaUnlessTheClientHasJustWritten() throws Exception {
+        awaitReplica();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        assertThat(applicationName(readOnly)).isEqualTo("notes-replica");
+        assertThat(applicationName(readWrite)).isNotEqualTo("notes-replica");
+        ReplicaRoutingDataSource.setPrimaryOnly(true);
+        try {
+            assertThat(applicationName(readOnly)).isNotEqualTo("notes-replica");
+        } finally {
+            ReplicaRoutingDataSource.setPrimaryOnly(false);
+        }
+        assertThat(tagsRepository.findAll()).isNotNull();
+
+        String tag = "{\"name\": \"Replica " + System.nanoTime() + "\"}";
+        mockMvc.perform(post("/tags/").contentType(MediaType.APPLICATION_JSON).content(tag))
+               .andExpect(status().isCreated())
+               .andExpect(cookie().exists(ReadYourWritesFilter.COOKIE));
+        mockMvc.perform(get("/tags/")).andExpect(status().isOk()).andExpect(cookie().doesNotExist(ReadYourWritesFilter.COOKIE));
+    }
+
+    @Test
+    void readsItsOwnWritesFromThePrimary() throws Exception {
+        awaitReplica();
+        String name = "Replica " + System.nanoTime();
+        MvcResult write = mockMvc.perform(post("/tags/").contentType(MediaType.APPLICATION_JSON).content("{\"name\": \"" + name + "\"}"))
+                                 .andExpect(status().isCreated())
+                                 .andReturn();
+        Cookie pin = write.getResponse().getCookie(ReadYourWritesFilter.COOKIE);
+        UUID tagId = UUID.fromString(JsonPath.read(write.getResponse().getContentAsString(), "$.id"));
+        UUID noteId = UUID.fromString(JsonPath.read(mockMvc.perform(post("/notes/").contentType(MediaType.APPLICATION_JSON)
+                                                                                   .content("{\"title\": \"" + name + "\"}"))
+                                                           .andExpect(status().isOk())
+                                                           .andReturn().getResponse().getContentAsString(), "$.id"));
+        try {
+            // The ETag comes from an uncached lookup, only the primary has the tag.
+            mockMvc.perform(get("/tags/" + tagId).cookie(pin)).andExpect(status().isOk()).andExpect(header().exists(HttpHeaders.ETAG));
+            mockMvc.perform(get("/tags/" + tagId)).andExpect(header().doesNotExist(HttpHeaders.ETAG));
+
+            // Streamed on another thread, which gets the pin from the task decorator.
+            MvcResult pinned = mockMvc.perform(get("/notes/stream").cookie(pin)).andExpect(request().asyncStarted()).andReturn();
+            mockMvc.perform(asyncDispatch(pinned)).andExpect(status().isOk()).andExpect(content().string(containsString(name)));
+            MvcResult unpinned = mockMvc.perform(get("/notes/stream")).andExpect(request().asyncStarted()).andReturn();
+            mockMvc.perform(asyncDispatch(unpinned)).andExpect(status().isOk()).andExpect(content().string(not(containsString(name))));
+        } finally {
+            notesRepository.deleteById(noteId);
+            tagsRepository.deleteById(tagId);
+        }
+    }
+
+    private void awaitReplica() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (replicaDataSource.lags().get("notes-replica-0") != 0) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    private String applicationName(TransactionTemplate transactionTemplate) {
+        return transactionTemplate.execute(status -> jdbcTemplate.queryForObject(APPLICATION_NAME, String.class));
+    }
+}
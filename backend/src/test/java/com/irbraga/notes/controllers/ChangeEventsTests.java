@@ -0,0 +1,74 @@
+package com.irbraga.notes.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.irbraga.notes.entities.TagEntity;
+import com.irbraga.notes.repositories.TagsRepository;
+import com.irbraga.notes.services.ChangeEventsService;
+
+/**
+ * Checks that the changes committed to the database are pushed to the subscribers.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ChangeEventsTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private TagsRepository tagsRepository;
+    @Autowired
+    private ChangeEventsService changeEventsService;
+
+    @Test
+    void pushesTheChanges() throws Exception {
+        await(changeEventsService::isListening);
+        MockHttpServletResponse response = mockMvc.perform(get("/notes/changes/events")).andExpect(request().asyncStarted()).andReturn().getResponse();
+        await(() -> contentOf(response).contains("event:ready"));
+
+        TagEntity tag = new TagEntity();
+        tag.setName("Live " + System.nanoTime());
+        UUID tagId = tagsRepository.save(tag).getId();
+        String created = "\"type\":\"tag\",\"entityId\":\"" + tagId + "\",\"relatedId\":null,\"operation\":\"upsert\"";
+        await(() -> contentOf(response).contains(created));
+
+        tagsRepository.deleteById(tagId);
+        await(() -> contentOf(response).contains("\"entityId\":\"" + tagId + "\",\"relatedId\":null,\"operation\":\"delete\""));
+    }
+
+    @Test
+    void resyncsAClientThatMissedChanges() throws Exception {
+        await(changeEventsService::isListening);
+        MockHttpServletResponse response = mockMvc.perform(get("/notes/changes/events").header("Last-Event-ID", "-1"))
+                                                  .andExpect(request().asyncStarted()).andReturn().getResponse();
+        await(() -> contentOf(response).contains("event:resync\ndata:-1"));
+    }
+
+    private static String contentOf(MockHttpServletResponse response) {
+        try {
+            return response.getContentAsString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition met in time").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
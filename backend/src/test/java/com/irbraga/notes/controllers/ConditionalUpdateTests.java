@@ -0,0 +1,98 @@
+package com.irbraga.notes.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.irbraga.notes.entities.NoteEntity;
+import com.irbraga.notes.repositories.NotesRepository;
+
+/**
+ * Checks that a JSON PUT is applied only while If-Match still has the version of the note,
+ * and that a GET serves the body of the version in its ETag.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ConditionalUpdateTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private NotesRepository notesRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private NoteEntity note;
+
+    @BeforeEach
+    void setUp() {
+        note = new NoteEntity();
+        note.setTitle("Draft");
+        note = notesRepository.save(note);
+    }
+
+    @AfterEach
+    void tearDown() {
+        notesRepository.deleteById(note.getId());
+    }
+
+    @Test
+    void updatesOnlyTheVersionInIfMatch() throws Exception {
+        String etag = mockMvc.perform(get("/notes/" + note.getId())).andExpect(status().isOk())
+                             .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        // Weak so the server can compress the note, If-Match still takes it.
+        assertThat(etag).startsWith("W/");
+
+        String updated = mockMvc.perform(put("/notes/" + note.getId()).contentType(MediaType.APPLICATION_JSON)
+                                                                      .header(HttpHeaders.IF_MATCH, etag)
+                                                                      .content("{\"title\": \"Final\", \"body\": \"Done\"}"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.title").value("Final"))
+                                .andExpect(jsonPath("$.body").value("Done"))
+                                .andExpect(header().exists(HttpHeaders.ETAG))
+                                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(updated).isNotEqualTo(etag);
+
+        mockMvc.perform(put("/notes/" + note.getId()).contentType(MediaType.APPLICATION_JSON)
+                                                     .header(HttpHeaders.IF_MATCH, etag)
+                                                     .content("{\"title\": \"Stale\"}"))
+               .andExpect(status().isPreconditionFailed());
+        assertThat(notesRepository.findById(note.getId()).orElseThrow().getTitle()).isEqualTo("Final");
+
+        // The same version without W/ matches too.
+        mockMvc.perform(put("/notes/" + note.getId()).contentType(MediaType.APPLICATION_JSON)
+                                                     .header(HttpHeaders.IF_MATCH, updated.substring(2))
+                                                     .content("{\"title\": \"Strong\"}"))
+               .andExpect(status().isOk())
+               .andExpect(jsonPath("$.title").value("Strong"));
+    }
+
+    @Test
+    void servesTheBodyOfTheETagWhenAnotherInstanceWrote() throws Exception {
+        String etag = mockMvc.perform(get("/notes/" + note.getId())).andExpect(status().isOk())
+                             .andExpect(jsonPath("$.title").value("Draft"))
+                             .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Written without going through this instance, its cache still has the note.
+        jdbcTemplate.update("UPDATE notes SET title = 'Elsewhere', updated_at = updated_at + interval '1 second' WHERE note_id = ?", note.getId());
+
+        String updated = mockMvc.perform(get("/notes/" + note.getId())).andExpect(status().isOk())
+                                .andExpect(jsonPath("$.title").value("Elsewhere"))
+                                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(updated).isNotEqualTo(etag);
+    }
+}
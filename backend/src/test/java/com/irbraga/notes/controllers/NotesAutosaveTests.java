@@ -0,0 +1,134 @@
+package com.irbraga.notes.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.irbraga.notes.entities.NoteEntity;
+import com.irbraga.notes.entities.TagEntity;
+import com.irbraga.notes.repositories.NotesRepository;
+import com.irbraga.notes.repositories.TagsRepository;
+import com.irbraga.notes.services.NotesAutosaveService;
+
+/**
+ * Checks that autosaved changes are merged in memory, visible to the reads and written once by the flush.
+ */
+@SpringBootTest(properties = "notes.autosave.flush-interval=3600000")
+@AutoConfigureMockMvc
+class NotesAutosaveTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private NotesRepository notesRepository;
+    @Autowired
+    private NotesAutosaveService notesAutosaveService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TagsRepository tagsRepository;
+
+    private NoteEntity note;
+
+    @BeforeEach
+    void setUp() {
+        note = new NoteEntity();
+        note.setTitle("Draft");
+        note = notesRepository.save(note);
+    }
+
+    @AfterEach
+    void tearDown() {
+        notesAutosaveService.discard(note.getId());
+        notesRepository.deleteById(note.getId());
+    }
+
+    @Test
+    void mergesChangesAndWritesThemOnFlush() throws Exception {
+        patchNote("{\"body\": \"first\", \"version\": 0}").andExpect(status().isAccepted())
+                                                         .andExpect(jsonPath("$.version").value(1));
+        patchNote("{\"title\": \"Typed\", \"version\": 1}").andExpect(status().isAccepted())
+                                                          .andExpect(jsonPath("$.body").value("first"))
+                                                          .andExpect(jsonPath("$.version").value(2));
+        patchNote("{\"title\": \"Stale\", \"version\": 1}").andExpect(status().isConflict());
+
+        mockMvc.perform(get("/notes/" + note.getId())).andExpect(status().isOk())
+                                                      .andExpect(jsonPath("$.title").value("Typed"))
+                                                      .andExpect(jsonPath("$.body").value("first"))
+                                                      .andExpect(jsonPath("$.version").value(2));
+        assertThat(stored().get("version")).isEqualTo(0L);
+
+        notesAutosaveService.flush();
+
+        Map<String, Object> row = stored();
+        assertThat(row.get("title")).isEqualTo("Typed");
+        assertThat(row.get("body")).isEqualTo("first");
+        assertThat(row.get("version")).isEqualTo(2L);
+        assertThat(notesAutosaveService.hasPending(note.getId())).isFalse();
+        patchNote("{\"body\": \"second\", \"version\": 2}").andExpect(status().isAccepted())
+                                                          .andExpect(jsonPath("$.title").value("Typed"))
+                                                          .andExpect(jsonPath("$.version").value(3));
+    }
+
+    @Test
+    void keepsTheListsCacheableWhileNotesHaveChangesPending() throws Exception {
+        TagEntity tag = new TagEntity();
+        tag.setName("Autosave " + System.nanoTime());
+        tag = tagsRepository.save(tag);
+        try {
+            String all = etag(get("/notes/"));
+            String tagged = etag(get("/notes/tag/" + tag.getId()));
+
+            patchNote("{\"body\": \"first\", \"version\": 0}").andExpect(status().isAccepted());
+
+            // The note is not in the list of the tag, which stays unchanged.
+            mockMvc.perform(get("/notes/tag/" + tag.getId()).header(HttpHeaders.IF_NONE_MATCH, tagged)).andExpect(status().isNotModified());
+            mockMvc.perform(get("/notes/").header(HttpHeaders.IF_NONE_MATCH, all)).andExpect(status().isOk());
+            String patched = etag(get("/notes/"));
+            assertThat(patched).isNotEqualTo(all);
+            mockMvc.perform(get("/notes/").header(HttpHeaders.IF_NONE_MATCH, patched)).andExpect(status().isNotModified());
+
+            patchNote("{\"body\": \"second\", \"version\": 1}").andExpect(status().isAccepted());
+            mockMvc.perform(get("/notes/").header(HttpHeaders.IF_NONE_MATCH, patched)).andExpect(status().isOk());
+        } finally {
+            tagsRepository.deleteById(tag.getId());
+        }
+    }
+
+    @Test
+    void rejectsChangesLeavingTheNoteEmpty() throws Exception {
+        patchNote("{\"title\": \" \", \"version\": 0}").andExpect(status().isBadRequest());
+        assertThat(notesAutosaveService.hasPending(note.getId())).isFalse();
+    }
+
+    private ResultActions patchNote(String body) throws Exception {
+        return mockMvc.perform(patch("/notes/" + note.getId()).contentType(MediaType.APPLICATION_JSON).content(body));
+    }
+
+    private String etag(MockHttpServletRequestBuilder request) throws Exception {
+        String etag = mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+        return etag;
+    }
+
+    private Map<String, Object> stored() {
+        return jdbcTemplate.queryForMap("SELECT title, body, version FROM notes WHERE note_id = ?", note.getId());
+    }
+}
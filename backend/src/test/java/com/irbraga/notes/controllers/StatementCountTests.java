@@ -0,0 +1,206 @@
+package com.irbraga.notes.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.jayway.jsonpath.JsonPath;
+import com.irbraga.notes.config.WebConfig;
+import com.irbraga.notes.entities.NoteEntity;
+import com.irbraga.notes.entities.TagEntity;
+import com.irbraga.notes.repositories.NotesRepository;
+import com.irbraga.notes.repositories.TagsRepository;
+import com.irbraga.notes.services.NoteTagsService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Checks that each read endpoint runs a fixed number of SQL statements, whatever the number of notes and tags.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+class StatementCountTests {
+
+    private static final int NOTES = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private NotesRepository notesRepository;
+    @Autowired
+    private TagsRepository tagsRepository;
+    @Autowired
+    private NoteTagsService noteTagsService;
+
+    private Statistics statistics;
+    private List<TagEntity> tags = new ArrayList<>();
+    private List<NoteEntity> notes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 2; i++) {
+            TagEntity tag = new TagEntity();
+            tag.setName("statement-count-" + i + "-" + System.nanoTime());
+            tags.add(tagsRepository.save(tag));
+        }
+        for (int i = 0; i < NOTES; i++) {
+            NoteEntity note = new NoteEntity();
+            note.setTitle("Note " + i);
+            note.setBody("Body " + i);
+            note = notesRepository.save(note);
+            note.setTags(new ArrayList<>(tags));
+            notes.add(notesRepository.save(note));
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        notesRepository.deleteAllById(notes.stream().map(NoteEntity::getId).toList());
+        tagsRepository.deleteAllById(tags.stream().map(TagEntity::getId).toList());
+    }
+
+    @Test
+    void listNotes() throws Exception {
+        perform("/notes/").andExpect(jsonPath("$[0].tags.length()").value(2))
+                          .andExpect(jsonPath("$[0].excerpt").exists())
+                          .andExpect(jsonPath("$[0].body").doesNotExist());
+        // The notes and tags versions, and the notes with their tags.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void listNotesWithTagDictionary() throws Exception {
+        String tagId = tags.get(0).getId().toString();
+        perform("/notes/?tagDictionary=true").andExpect(jsonPath("$.notes[0].tagIds.length()").value(2))
+                                             .andExpect(jsonPath("$.tags['" + tagId + "'].name").value(tags.get(0).getName()));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void listNotesAsSmile() throws Exception {
+        byte[] body = mockMvc.perform(get("/notes/?tagDictionary=true").accept(WebConfig.APPLICATION_SMILE_VALUE))
+                             .andExpect(status().isOk())
+                             .andExpect(content().contentType(WebConfig.APPLICATION_SMILE_VALUE))
+                             .andReturn().getResponse().getContentAsByteArray();
+        JsonNode page = new SmileMapper().readTree(body);
+        assertThat(page.get("tags").has(tags.get(0).getId().toString())).isTrue();
+        assertThat(page.get("notes").size()).isGreaterThanOrEqualTo(NOTES);
+    }
+
+    @Test
+    void getNote() throws Exception {
+        perform("/notes/" + notes.get(0).getId()).andExpect(jsonPath("$.tags.length()").value(2));
+        // The version and the note with its tags.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void listNotesByTag() throws Exception {
+        perform("/notes/tag/" + tags.get(0).getId()).andExpect(jsonPath("$.length()").value(NOTES))
+                                                    .andExpect(jsonPath("$[0].tags.length()").value(2));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void listNotesNotModified() throws Exception {
+        String etag = perform("/notes/").andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        statistics.clear();
+        mockMvc.perform(get("/notes/").header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+        // Only the versions.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getNoteNotModified() throws Exception {
+        String etag = perform("/notes/" + notes.get(0).getId()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        statistics.clear();
+        mockMvc.perform(get("/notes/" + notes.get(0).getId()).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void paginateNotes() throws Exception {
+        perform("/notes/paginate?size=" + NOTES).andExpect(jsonPath("$.items.length()").value(NOTES));
+        // The page and one batch of tags.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void streamNotes() throws Exception {
+        long total = notesRepository.count();
+        statistics.clear();
+        MvcResult result = mockMvc.perform(get("/notes/stream")).andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        // The streaming query and one batch of tags per chunk of notes.
+        long chunks = (total + NotesRepository.STREAM_FETCH_SIZE - 1) / NotesRepository.STREAM_FETCH_SIZE;
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + chunks);
+    }
+
+    @Test
+    void listTags() throws Exception {
+        perform("/tags/");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void getTag() throws Exception {
+        perform("/tags/" + tags.get(0).getId());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void paginateTags() throws Exception {
+        perform("/tags/paginate");
+        // The page and, when it is full, the count.
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void sliceTags() throws Exception {
+        String cursor = JsonPath.read(perform("/tags/slice?size=1").andExpect(jsonPath("$.items.length()").value(1))
+                                                                   .andReturn().getResponse().getContentAsString(), "$.nextCursor");
+        perform("/tags/slice?size=1&cursor=" + cursor).andExpect(jsonPath("$.items.length()").value(1));
+        // One page each, one more tag than the size instead of a count.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void topTags() throws Exception {
+        noteTagsService.remove(notes.get(0).getId(), tags.get(1).getId());
+        statistics.clear();
+        // The counts follow the links.
+        perform("/tags/top?limit=2").andExpect(jsonPath("$[0].noteCount").value(NOTES))
+                                    .andExpect(jsonPath("$[1].noteCount").value(NOTES - 1));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private ResultActions perform(String path) throws Exception {
+        return mockMvc.perform(get(path)).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,74 @@
+package com.irbraga.notes.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.irbraga.notes.dto.ChangesDto;
+import com.irbraga.notes.dto.TagReturnObject;
+
+/**
+ * Checks that a client syncing while transactions interleave gets every change.
+ */
+@SpringBootTest
+class ChangesServiceTests {
+
+    @Autowired
+    private ChangesService changesService;
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void doesNotSkipTheChangesOfATransactionCommittingAfterALaterOne() throws SQLException {
+        long token = Long.parseLong(changesService.currentToken());
+        Set<UUID> synced = new HashSet<>();
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        try (Connection longer = dataSource.getConnection(); Connection shorter = dataSource.getConnection()) {
+            longer.setAutoCommit(false);
+            shorter.setAutoCommit(false);
+            // The first change ID goes to the transaction committing last.
+            insertTag(longer, first);
+            insertTag(shorter, second);
+            shorter.commit();
+
+            token = sync(token, synced);
+            assertThat(synced).doesNotContain(first);
+
+            longer.commit();
+        }
+
+        sync(token, synced);
+        assertThat(synced).contains(first, second);
+    }
+
+    private long sync(long token, Set<UUID> synced) {
+        ChangesDto changes;
+        do {
+            changes = changesService.changesSince(token, 1).orElseThrow();
+            changes.tags().stream().map(TagReturnObject::id).forEach(synced::add);
+            token = Long.parseLong(changes.nextToken());
+        } while (changes.hasMore());
+        return token;
+    }
+
+    private static void insertTag(Connection connection, UUID id) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO tags (tag_id, name) VALUES (?, ?)")) {
+            statement.setObject(1, id);
+            statement.setString(2, "Interleaved " + id);
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.irbraga.notes.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.irbraga.notes.dto.BulkItemResult;
+import com.irbraga.notes.repositories.NotesRepository;
+
+/**
+ * Checks that a note the database rejects does not fail the other notes of its batch.
+ */
+@SpringBootTest
+class NotesBulkServiceTests {
+
+    @Autowired
+    private NotesBulkService notesBulkService;
+    @Autowired
+    private NotesRepository notesRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final List<BulkItemResult> results = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        results.stream().filter(result -> result.id() != null).forEach(result -> notesRepository.deleteById(result.id()));
+    }
+
+    @Test
+    void reportsOnlyTheNotesTheDatabaseRejects() throws Exception {
+        // Valid for the validation, but PostgreSQL text cannot hold a NUL character.
+        String ndjson = """
+                {"title": "Bulk first"}
+                {"title": "Bulk NUL", "body": "a\\u0000b"}
+                {"title": "Bulk third"}
+                """;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        notesBulkService.importNdjson(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), output);
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) {
+                results.add(objectMapper.readValue(line, BulkItemResult.class));
+            }
+        }
+
+        assertThat(results).extracting(BulkItemResult::line, BulkItemResult::status)
+                           .containsExactly(tuple(1L, BulkItemResult.Status.CREATED),
+                                            tuple(2L, BulkItemResult.Status.FAILED),
+                                            tuple(3L, BulkItemResult.Status.CREATED));
+        assertThat(notesRepository.findById(results.get(0).id())).isPresent();
+        assertThat(notesRepository.findById(results.get(2).id())).isPresent();
+    }
+}
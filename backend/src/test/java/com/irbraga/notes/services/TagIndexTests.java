@@ -0,0 +1,259 @@
+package com.irbraga.notes.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.irbraga.notes.dto.NoteTagDto;
+import com.irbraga.notes.entities.ChangeEntity;
+import com.irbraga.notes.repositories.NotesRepository;
+
+/**
+ * Checks the filters of the index against a scan of the notes, that it follows the change feed,
+ * and that the tags changed through this instance are applied right away.
+ */
+class TagIndexTests {
+
+    // The notes and their tags, and their creation dates, as in the database.
+    private final Map<UUID, Set<UUID>> notes = new LinkedHashMap<>();
+    private final Map<UUID, Timestamp> created = new HashMap<>();
+    private long clock;
+    // Changes not read from the feed yet.
+    private final List<ChangeEntity> changes = new ArrayList<>();
+    // Run once while the refresh loads the notes, after it read their tags.
+    private Runnable duringLoad = () -> {};
+
+    @Test
+    void filtersLikeAScanOfTheNotes() {
+        Random random = new Random(42);
+        List<UUID> tags = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tags.add(UUID.randomUUID());
+        }
+        for (int i = 0; i < 2000; i++) {
+            Set<UUID> noteTags = new HashSet<>();
+            tags.stream().filter(tag -> random.nextInt(3) == 0).forEach(noteTags::add);
+            UUID id = UUID.randomUUID();
+            notes.put(id, noteTags);
+            // Not in creation order, and with ties.
+            created.put(id, Timestamp.from(Instant.EPOCH.plus(random.nextInt(500), ChronoUnit.MICROS)));
+        }
+        TagIndex index = build();
+
+        List<List<Set<UUID>>> filters = List.of(
+            List.of(Set.of(tags.get(0)), Set.of(), Set.of()),
+            List.of(Set.of(tags.get(0), tags.get(1)), Set.of(), Set.of()),
+            List.of(Set.of(), Set.of(tags.get(2), tags.get(3)), Set.of()),
+            List.of(Set.of(), Set.of(), Set.of(tags.get(4))),
+            List.of(Set.of(tags.get(5)), Set.of(tags.get(6), tags.get(7)), Set.of(tags.get(0), tags.get(1))),
+            List.of(Set.of(UUID.randomUUID()), Set.of(), Set.of()),
+            List.of(Set.of(), Set.of(UUID.randomUUID()), Set.of()));
+        for (List<Set<UUID>> filter : filters) {
+            for (int limit : List.of(notes.size(), 100, 1)) {
+                assertThat(index.query(filter.get(0), filter.get(1), filter.get(2), limit).orElseThrow())
+                    .containsExactlyElementsOf(scan(filter.get(0), filter.get(1), filter.get(2)).stream().limit(limit).toList());
+            }
+        }
+    }
+
+    @Test
+    void dropsTheNotesOfADeletedTagFromEveryTag() {
+        UUID work = UUID.randomUUID();
+        UUID home = UUID.randomUUID();
+        UUID both = note(work, home);
+        UUID atWork = note(work);
+        UUID atHome = note(home);
+        TagIndex index = build();
+        assertThat(index.query(Set.of(), Set.of(home), Set.of(), 10).orElseThrow()).containsExactlyInAnyOrder(both, atHome);
+
+        // The notes of a tag are deleted with it.
+        deleteNote(both);
+        deleteNote(atWork);
+        changes.add(change(ChangeEntity.TYPE_TAG, work, null, ChangeEntity.OPERATION_DELETE));
+        index.refresh();
+
+        assertThat(index.query(Set.of(home), Set.of(), Set.of(), 10).orElseThrow()).containsExactly(atHome);
+        assertThat(index.query(Set.of(), Set.of(work, home), Set.of(), 10).orElseThrow()).containsExactly(atHome);
+        assertThat(index.query(Set.of(), Set.of(), Set.of(work), 10).orElseThrow()).containsExactly(atHome);
+    }
+
+    @Test
+    void reusesTheOrdinalsOfDeletedNotes() {
+        UUID work = UUID.randomUUID();
+        UUID first = note(work);
+        UUID second = note(work);
+        TagIndex index = build();
+
+        deleteNote(first);
+        index.refresh();
+        UUID third = note(work);
+        changes.add(change(ChangeEntity.TYPE_NOTE, third, null, ChangeEntity.OPERATION_UPSERT));
+        changes.add(change(ChangeEntity.TYPE_NOTE_TAG, third, work, ChangeEntity.OPERATION_UPSERT));
+        index.refresh();
+
+        // The third note has the ordinal of the first one, it still comes after the second.
+        assertThat(index.query(Set.of(work), Set.of(), Set.of(), 10).orElseThrow()).containsExactly(second, third);
+        Object snapshot = ReflectionTestUtils.getField(index, "snapshot");
+        assertThat((List<?>) ReflectionTestUtils.getField(snapshot, "noteIds")).hasSize(2);
+    }
+
+    @Test
+    void followsTheLinksChangedOutsideTheApplication() {
+        UUID work = UUID.randomUUID();
+        UUID home = UUID.randomUUID();
+        UUID note = note(work);
+        TagIndex index = build();
+
+        notes.get(note).remove(work);
+        notes.get(note).add(home);
+        changes.add(change(ChangeEntity.TYPE_NOTE_TAG, note, work, ChangeEntity.OPERATION_DELETE));
+        changes.add(change(ChangeEntity.TYPE_NOTE_TAG, note, home, ChangeEntity.OPERATION_UPSERT));
+        index.refresh();
+
+        assertThat(index.query(Set.of(work), Set.of(), Set.of(), 10).orElseThrow()).isEmpty();
+        assertThat(index.query(Set.of(home), Set.of(), Set.of(work), 10).orElseThrow()).containsExactly(note);
+    }
+
+    @Test
+    void appliesTheTagsChangedThroughThisInstanceRightAway() {
+        UUID work = UUID.randomUUID();
+        UUID home = UUID.randomUUID();
+        UUID indexed = note(work);
+        TagIndex index = build();
+
+        notes.get(indexed).add(home);
+        notes.get(indexed).remove(work);
+        // Created after the index was built, not read from the feed yet.
+        UUID created = note(work);
+        notes.get(created).add(home);
+        index.applyLinks(List.of(new NoteTagDto(indexed, home), new NoteTagDto(created, home)), List.of(new NoteTagDto(indexed, work)));
+
+        assertThat(index.query(Set.of(home), Set.of(), Set.of(), 10).orElseThrow()).containsExactly(indexed, created);
+        assertThat(index.query(Set.of(work), Set.of(), Set.of(), 10).orElseThrow()).containsExactly(created);
+    }
+
+    @Test
+    void keepsTheTagsChangedWhileTheRefreshWasLoading() {
+        UUID work = UUID.randomUUID();
+        UUID home = UUID.randomUUID();
+        UUID note = note(work);
+        TagIndex index = build();
+
+        changes.add(change(ChangeEntity.TYPE_NOTE, note, null, ChangeEntity.OPERATION_UPSERT));
+        duringLoad = () -> {
+            notes.get(note).add(home);
+            index.applyLinks(List.of(new NoteTagDto(note, home)), List.of());
+        };
+        index.refresh();
+        assertThat(index.query(Set.of(work, home), Set.of(), Set.of(), 10).orElseThrow()).containsExactly(note);
+
+        // Loaded again with its current tags.
+        index.refresh();
+        assertThat(index.query(Set.of(work, home), Set.of(), Set.of(), 10).orElseThrow()).containsExactly(note);
+    }
+
+    private UUID note(UUID... tags) {
+        UUID id = UUID.randomUUID();
+        notes.put(id, new HashSet<>(List.of(tags)));
+        created.put(id, Timestamp.from(Instant.EPOCH.plus(clock++, ChronoUnit.MICROS)));
+        return id;
+    }
+
+    private void deleteNote(UUID id) {
+        for (UUID tag : notes.remove(id)) {
+            changes.add(change(ChangeEntity.TYPE_NOTE_TAG, id, tag, ChangeEntity.OPERATION_DELETE));
+        }
+        changes.add(change(ChangeEntity.TYPE_NOTE, id, null, ChangeEntity.OPERATION_DELETE));
+    }
+
+    private static ChangeEntity change(String type, UUID entityId, UUID relatedId, String operation) {
+        ChangeEntity change = new ChangeEntity();
+        change.setEntityType(type);
+        change.setEntityId(entityId);
+        change.setRelatedId(relatedId);
+        change.setOperation(operation);
+        return change;
+    }
+
+    /**
+     * The notes matching, ordered like the SQL filter: creation date, then ID as unsigned bytes.
+     */
+    private List<UUID> scan(Set<UUID> all, Set<UUID> any, Set<UUID> none) {
+        Comparator<UUID> byId = Comparator.<UUID, Long>comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+                                          .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+        return notes.entrySet().stream()
+                    .filter(note -> note.getValue().containsAll(all))
+                    .filter(note -> any.isEmpty() || any.stream().anyMatch(note.getValue()::contains))
+                    .filter(note -> none.stream().noneMatch(note.getValue()::contains))
+                    .map(Map.Entry::getKey)
+                    .sorted(Comparator.comparing((UUID id) -> created.get(id)).thenComparing(byId))
+                    .toList();
+    }
+
+    private TagIndex build() {
+        NotesRepository repository = mock(NotesRepository.class);
+        when(repository.streamCreationDates()).thenAnswer(invocation -> creationDates(notes.keySet()).stream());
+        when(repository.streamTagLinks()).thenAnswer(invocation -> links(notes.keySet()).stream());
+        when(repository.findCreationDates(anyCollection())).thenAnswer(invocation -> creationDates(invocation.getArgument(0)));
+        when(repository.findTagLinks(anyCollection())).thenAnswer(invocation -> {
+            List<Object[]> links = links(invocation.getArgument(0));
+            Runnable hook = duringLoad;
+            duringLoad = () -> {};
+            hook.run();
+            return links;
+        });
+        ChangesService changesService = mock(ChangesService.class);
+        when(changesService.currentToken()).thenReturn("0");
+        when(changesService.committedChangesSince(anyLong(), anyInt())).thenAnswer(invocation -> {
+            List<ChangeEntity> batch = List.copyOf(changes);
+            changes.clear();
+            return new ChangesService.Batch(batch, invocation.<Long>getArgument(0) + 1, false);
+        });
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        TagIndex index = new TagIndex();
+        ReflectionTestUtils.setField(index, "notesRepository", repository);
+        ReflectionTestUtils.setField(index, "changesService", changesService);
+        ReflectionTestUtils.setField(index, "transactionTemplate", transactionTemplate);
+        assertThat(index.query(Set.of(), Set.of(), Set.of(), 1)).isEmpty();
+        index.rebuild();
+        return index;
+    }
+
+    private List<Object[]> creationDates(Collection<UUID> noteIds) {
+        return noteIds.stream().filter(notes::containsKey).map(noteId -> new Object[] {noteId, created.get(noteId)}).toList();
+    }
+
+    private List<Object[]> links(Collection<UUID> noteIds) {
+        List<Object[]> links = new ArrayList<>();
+        for (UUID noteId : noteIds) {
+            notes.getOrDefault(noteId, Set.of()).forEach(tag -> links.add(new Object[] {noteId, tag}));
+        }
+        return links;
+    }
+}
@@ -0,0 +1,82 @@
+package com.irbraga.notes.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.irbraga.notes.dto.TagSuggestion;
+import com.irbraga.notes.repositories.TagsRepository;
+
+/**
+ * Checks the suggestions of the index against a scan of all the tags.
+ */
+class TagSuggestIndexTests {
+
+    @Test
+    void suggestsTheMostUsedTagsStartingWithThePrefix() {
+        Random random = new Random(42);
+        List<TagSuggestion> tags = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String name = (random.nextBoolean() ? "W" : "w") + Integer.toString(random.nextInt(5000), 7);
+            tags.add(new TagSuggestion(UUID.randomUUID(), name, random.nextInt(20)));
+        }
+        TagSuggestIndex index = build(tags);
+
+        for (String prefix : List.of("", "w", " W1", "w23", "w66", "x")) {
+            assertThat(index.suggest(prefix, 10)).contains(scan(tags, prefix, 10));
+        }
+    }
+
+    @Test
+    void followsCreatedRenamedAndDeletedTags() {
+        TagSuggestion work = new TagSuggestion(UUID.randomUUID(), "Work", 3);
+        TagSuggestion world = new TagSuggestion(UUID.randomUUID(), "World", 1);
+        TagSuggestIndex index = build(List.of(work, world));
+        UUID created = UUID.randomUUID();
+
+        index.put(created, "Worry");
+        assertThat(index.suggest("wor", 5).orElseThrow()).extracting(TagSuggestion::name).containsExactly("Work", "World", "Worry");
+
+        index.put(work.id(), "Home");
+        index.remove(world.id());
+        assertThat(index.suggest("wor", 5).orElseThrow()).extracting(TagSuggestion::name).containsExactly("Worry");
+        assertThat(index.suggest("ho", 5).orElseThrow()).containsExactly(new TagSuggestion(work.id(), "Home", 3));
+    }
+
+    private static TagSuggestIndex build(List<TagSuggestion> tags) {
+        TagsRepository repository = mock(TagsRepository.class);
+        when(repository.findAllSuggestions()).thenReturn(tags);
+        TagSuggestIndex index = new TagSuggestIndex();
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        ReflectionTestUtils.setField(index, "tagsRepository", repository);
+        ReflectionTestUtils.setField(index, "transactionTemplate", transactionTemplate);
+        assertThat(index.suggest("", 1)).isEmpty();
+        index.rebuild();
+        return index;
+    }
+
+    private static List<TagSuggestion> scan(List<TagSuggestion> tags, String prefix, int limit) {
+        String normalized = TagSuggestIndex.normalizePrefix(prefix);
+        return tags.stream()
+                   .filter(tag -> tag.name().toLowerCase(Locale.ROOT).startsWith(normalized))
+                   .sorted(Comparator.comparingLong(TagSuggestion::noteCount).reversed()
+                                     .thenComparing(tag -> tag.name().toLowerCase(Locale.ROOT))
+                                     .thenComparing(TagSuggestion::id))
+                   .limit(limit)
+                   .toList();
+    }
+}